@@ -0,0 +1,24 @@
+package org.example.lab1.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准入口：接受JMH的全部命令行参数，并且总是加上GC分析器，同时报告吞吐量和分配速率
+ * （gc.alloc.rate.norm为每次操作分配的字节数）.
+ * 例如只测一种规模：{@code java -jar target/benchmarks.jar -p tokens=1000000 queryBridgeWords}.
+ */
+
+public final class BenchmarkMain {
+  private BenchmarkMain() {
+  }
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions cmd = new CommandLineOptions(args);
+    new Runner(new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class).build()).run();
+  }
+}
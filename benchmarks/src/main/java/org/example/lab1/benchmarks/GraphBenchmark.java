@@ -0,0 +1,157 @@
+package org.example.lab1.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.example.lab1.Graph;
+import org.example.lab1.GraphUtils;
+import org.example.lab1.WalkSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Graph各项操作的吞吐量基准. 语料由ZipfCorpus按参数生成，查询的单词按语料中的词频抽取.
+ * calcAllShortestPaths会打印每条路径，测量期间标准输出被丢弃，避免终端输出主导结果.
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBenchmark {
+  private static final int QUERY_COUNT = 1024; // 预先抽取的查询数，必须是2的幂
+  private static final int TEXT_WORDS = 1000; // generateNewText输入的单词数
+
+  @Param({"100000", "1000000"})
+  public int tokens;
+
+  @Param({"20000"})
+  public int vocabulary;
+
+  @Param({"1.0"})
+  public double exponent;
+
+  private Path file;
+  private List<String> words;
+  private Graph graph;
+  private WalkSession walkSession;
+  private String[][] queries;
+  private String inputText;
+  private int next;
+  private PrintStream stdout;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    ZipfCorpus corpus = new ZipfCorpus(vocabulary, exponent, 42);
+    file = corpus.writeFile(Files.createTempFile("zipf-corpus", ".txt"), tokens);
+    words = GraphUtils.readWordsFromFile(file.toFile());
+    graph = new Graph();
+    graph.createGraph(words);
+    graph.setWords(words);
+    graph.freeze();
+    walkSession = new WalkSession(graph::freeze, new Random(7), null);
+    SplittableRandom random = new SplittableRandom(7);
+    queries = new String[QUERY_COUNT][];
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      queries[i] = new String[] {words.get(random.nextInt(words.size())),
+          words.get(random.nextInt(words.size()))};
+    }
+    inputText = String.join(" ", words.subList(0, Math.min(TEXT_WORDS, words.size())));
+    stdout = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    System.setOut(stdout);
+    Files.deleteIfExists(file);
+  }
+
+  private String[] nextQuery() {
+    return queries[next++ & (QUERY_COUNT - 1)];
+  }
+
+  @Benchmark
+  public List<String> readWordsFromFile() {
+    return GraphUtils.readWordsFromFile(file.toFile());
+  }
+
+  @Benchmark
+  public Graph createGraph() {
+    Graph g = new Graph();
+    g.createGraph(words);
+    return g;
+  }
+
+  @Benchmark
+  public String queryBridgeWords() {
+    String[] query = nextQuery();
+    return graph.queryBridgeWords(query[0], query[1]);
+  }
+
+  @Benchmark
+  public String generateNewText() {
+    return graph.generateNewText(inputText);
+  }
+
+  @Benchmark
+  public List<List<String>> calcAllShortestPaths() {
+    String[] query = nextQuery();
+    return graph.calcAllShortestPaths(query[0], query[1]);
+  }
+
+  /**
+   * 单源最短路径，并还原16个终点的路径.
+   */
+  @Benchmark
+  public void calcAllShortestPathsToAll(Blackhole blackhole) {
+    String[] query = nextQuery();
+    Map<String, List<List<String>>> paths = graph.calcAllShortestPathsToAll(query[0]);
+    for (int i = 0; i < 16; i++) {
+      blackhole.consume(paths.get(nextQuery()[1]));
+    }
+  }
+
+  /**
+   * 一次完整的交互式游走. 会话没有结束回调，不测量写random_walk.txt的文件IO.
+   */
+  @Benchmark
+  public int randomWalk() {
+    walkSession.reset();
+    int steps = 0;
+    do {
+      walkSession.step();
+      steps++;
+    } while (walkSession.isWalking());
+    return steps;
+  }
+
+  /**
+   * 按权重批量生成1024条游走.
+   */
+  @Benchmark
+  public void batchRandomWalks(Blackhole blackhole) {
+    graph.freeze().walker().walk(1024, 0, next++, (nodes, length) -> blackhole.consume(length));
+  }
+}
@@ -0,0 +1,125 @@
+package org.example.lab1.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 按Zipf分布生成的合成语料：第r常用的单词出现的概率与1 / r^exponent成正比，
+ * 与自然语言的词频分布相近. 相同的参数和种子总是得到相同的语料.
+ */
+
+public final class ZipfCorpus {
+  private final String[] vocabulary;
+  private final double[] cumulative; // 按词频排名的累积概率
+  private final long seed;
+
+  /**
+   * 创建生成器.
+   *
+   * @param vocabularySize 词汇量
+   * @param exponent Zipf指数，自然语言约为1
+   * @param seed 随机数种子
+   */
+  public ZipfCorpus(int vocabularySize, double exponent, long seed) {
+    this.vocabulary = new String[vocabularySize];
+    this.cumulative = new double[vocabularySize];
+    this.seed = seed;
+    double total = 0;
+    for (int r = 0; r < vocabularySize; r++) {
+      vocabulary[r] = wordOf(r);
+      total += 1.0 / Math.pow(r + 1, exponent);
+      cumulative[r] = total;
+    }
+    for (int r = 0; r < vocabularySize; r++) {
+      cumulative[r] /= total;
+    }
+  }
+
+  /**
+   * 第r个单词：按26进制编码的小写字母串，保证互不相同且能通过分词器的清洗.
+   */
+  static String wordOf(int r) {
+    StringBuilder word = new StringBuilder();
+    int v = r;
+    do {
+      word.append((char) ('a' + v % 26));
+      v = v / 26 - 1;
+    } while (v >= 0);
+    return word.reverse().toString();
+  }
+
+  /**
+   * 按排名返回单词，0是最常用的单词.
+   */
+  public String word(int rank) {
+    return vocabulary[rank];
+  }
+
+  public int vocabularySize() {
+    return vocabulary.length;
+  }
+
+  /**
+   * 生成count个单词.
+   */
+  public List<String> words(int count) {
+    SplittableRandom random = new SplittableRandom(seed);
+    List<String> words = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      words.add(vocabulary[sample(random)]);
+    }
+    return words;
+  }
+
+  /**
+   * 把count个单词写成文本文件. 单词之间用空格分隔，随机夹带逗号、句点、大写字母和换行，
+   * 用来覆盖分词器的清洗逻辑.
+   */
+  public Path writeFile(Path file, int count) {
+    SplittableRandom random = new SplittableRandom(seed);
+    try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < count; i++) {
+        String word = vocabulary[sample(random)];
+        int roll = random.nextInt(100);
+        if (roll < 5) {
+          out.write(Character.toUpperCase(word.charAt(0)));
+          out.write(word, 1, word.length() - 1);
+        } else {
+          out.write(word);
+        }
+        if (roll >= 95) {
+          out.write(roll % 2 == 0 ? ". " : ", ");
+        } else if (i % 16 == 15) {
+          out.write('\n');
+        } else {
+          out.write(' ');
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return file;
+  }
+
+  private int sample(SplittableRandom random) {
+    double u = random.nextDouble();
+    int low = 0;
+    int high = cumulative.length - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cumulative[mid] < u) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -6,6 +6,10 @@ module lab1 {
     requires javafx.media;
     requires javafx.swing;
     requires javafx.web;
+    requires java.desktop;
+    requires java.management;
+    requires jdk.httpserver;
+    requires jdk.jfr;
 
     opens org.example.lab1 to javafx.fxml;
     exports org.example.lab1;
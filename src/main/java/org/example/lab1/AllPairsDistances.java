@@ -0,0 +1,372 @@
+package org.example.lab1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 预先计算的全源最短距离，每个起点一次Dijkstra，用ForkJoin并行.
+ * 稠密形式是n * n的int矩阵；稀疏形式只保存距离不超过radius的节点对，
+ * 每个起点一张开放寻址散列表，适合词汇量大的图. 两种形式的查询都是O(1).
+ * 结果可以保存到文件，载入时检查与图是否一致.
+ */
+
+public final class AllPairsDistances {
+  public static final int UNREACHABLE = ShortestPathTree.UNREACHABLE;
+  static final int MAGIC = 0x4C415044; // "LAPD"
+  static final int VERSION = 1;
+  private static final int HEADER_BYTES = 32;
+  private static final int LEAF_SOURCES = 16; // ForkJoin叶子任务处理的起点数
+
+  private final GraphSnapshot graph;
+  private final int radius; // 稀疏形式的距离上限，稠密形式为UNREACHABLE
+  private final int[] matrix; // 稠密形式的距离矩阵，稀疏形式为null
+  private final int[] rowOffsets; // 稀疏形式：第u行的散列表是keys/values的[rowOffsets[u], rowOffsets[u + 1])
+  private final int[] keys; // 目标节点 + 1，0表示空槽
+  private final int[] values;
+
+  private AllPairsDistances(GraphSnapshot graph, int radius, int[] matrix, int[] rowOffsets,
+                            int[] keys, int[] values) {
+    this.graph = graph;
+    this.radius = radius;
+    this.matrix = matrix;
+    this.rowOffsets = rowOffsets;
+    this.keys = keys;
+    this.values = values;
+  }
+
+  /**
+   * 计算稠密的距离矩阵，需要n * n个int.
+   *
+   * @param parallelism 并行的线程数
+   */
+  public static AllPairsDistances compute(GraphSnapshot graph, int parallelism) {
+    int n = graph.nodeCount();
+    if ((long) n * n > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Too many nodes for a dense matrix: " + n);
+    }
+    int[] matrix = new int[n * n];
+    Arrays.fill(matrix, UNREACHABLE);
+    run(graph, UNREACHABLE, parallelism, (source, targets, dist, count) -> {
+      int row = source * n;
+      for (int i = 0; i < count; i++) {
+        matrix[row + targets[i]] = dist[i];
+      }
+    });
+    return new AllPairsDistances(graph, UNREACHABLE, matrix, null, null, null);
+  }
+
+  /**
+   * 计算稀疏形式，只保存距离不超过radius的节点对. 边权至少为1，
+   * 所以保存的节点都在radius跳以内.
+   *
+   * @param radius 距离上限
+   * @param parallelism 并行的线程数
+   */
+  public static AllPairsDistances compute(GraphSnapshot graph, int radius, int parallelism) {
+    int n = graph.nodeCount();
+    int[][] rowKeys = new int[n][];
+    int[][] rowValues = new int[n][];
+    run(graph, radius, parallelism, (source, targets, dist, count) -> {
+      int capacity = tableSize(count);
+      int[] k = new int[capacity];
+      int[] v = new int[capacity];
+      for (int i = 0; i < count; i++) {
+        int slot = slot(targets[i], capacity - 1);
+        while (k[slot] != 0) {
+          slot = (slot + 1) & (capacity - 1);
+        }
+        k[slot] = targets[i] + 1;
+        v[slot] = dist[i];
+      }
+      rowKeys[source] = k;
+      rowValues[source] = v;
+    });
+    int[] rowOffsets = new int[n + 1];
+    long total = 0;
+    for (int u = 0; u < n; u++) {
+      total += rowKeys[u].length;
+      if (total > Integer.MAX_VALUE - 8) {
+        throw new IllegalArgumentException("Too many pairs within radius " + radius);
+      }
+      rowOffsets[u + 1] = (int) total;
+    }
+    int[] keys = new int[(int) total];
+    int[] values = new int[(int) total];
+    for (int u = 0; u < n; u++) {
+      System.arraycopy(rowKeys[u], 0, keys, rowOffsets[u], rowKeys[u].length);
+      System.arraycopy(rowValues[u], 0, values, rowOffsets[u], rowValues[u].length);
+      rowKeys[u] = null;
+      rowValues[u] = null;
+    }
+    return new AllPairsDistances(graph, radius, null, rowOffsets, keys, values);
+  }
+
+  public GraphSnapshot graph() {
+    return graph;
+  }
+
+  public boolean isDense() {
+    return matrix != null;
+  }
+
+  /**
+   * 稀疏形式的距离上限，稠密形式返回UNREACHABLE.
+   */
+  public int radius() {
+    return radius;
+  }
+
+  /**
+   * source到target的最短距离，不可达（或超出radius）时返回UNREACHABLE.
+   */
+  public int distance(int source, int target) {
+    if (matrix != null) {
+      return matrix[source * graph.nodeCount() + target];
+    }
+    int from = rowOffsets[source];
+    int mask = rowOffsets[source + 1] - from - 1;
+    if (mask < 0) {
+      return UNREACHABLE;
+    }
+    for (int slot = slot(target, mask); ; slot = (slot + 1) & mask) {
+      int key = keys[from + slot];
+      if (key == 0) {
+        return UNREACHABLE;
+      }
+      if (key == target + 1) {
+        return values[from + slot];
+      }
+    }
+  }
+
+  /**
+   * 同distance(int, int)，单词不在图中时返回UNREACHABLE.
+   */
+  public int distance(String source, String target) {
+    int s = graph.id(source.toLowerCase());
+    int t = graph.id(target.toLowerCase());
+    return s < 0 || t < 0 ? UNREACHABLE : distance(s, t);
+  }
+
+  /**
+   * 保存到文件. 布局（大端序）：头部magic, version, n, radius, 是否稠密, 散列表总长m,
+   * 图的指纹(long)；稠密形式之后是int[n * n]，稀疏形式之后是int[n + 1]行起点、int[m]键、int[m]值.
+   */
+  public void save(Path file) throws IOException {
+    long begin = GraphMetrics.begin();
+    int n = graph.nodeCount();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(radius)
+              .putInt(isDense() ? 1 : 0).putInt(isDense() ? 0 : keys.length)
+              .putLong(fingerprint(graph)).flip();
+      GraphStore.writeFully(channel, header);
+      if (isDense()) {
+        GraphStore.writeInts(channel, matrix);
+      } else {
+        GraphStore.writeInts(channel, rowOffsets);
+        GraphStore.writeInts(channel, keys);
+        GraphStore.writeInts(channel, values);
+      }
+    }
+    GraphExporter.recordExport(begin, file);
+  }
+
+  /**
+   * 从文件载入，graph必须是计算时使用的图.
+   *
+   * @throws IOException 文件格式不对或与graph不一致
+   */
+  public static AllPairsDistances load(Path file, GraphSnapshot graph) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      GraphStore.checkSize(file, channel, HEADER_BYTES);
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      if (header.getInt() != MAGIC) {
+        throw new IOException("Not a distance file: " + file);
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported distance file version: " + version);
+      }
+      int n = header.getInt();
+      int radius = header.getInt();
+      boolean dense = header.getInt() != 0;
+      int m = header.getInt();
+      if (n != graph.nodeCount() || header.getLong() != fingerprint(graph)) {
+        throw new IOException("Distance file " + file + " was computed for another graph");
+      }
+      GraphStore.checkCounts(file, n, m);
+      if (dense) {
+        if ((long) n * n > Integer.MAX_VALUE) {
+          throw new IOException("Dense distance matrix too large in " + file + ": n = " + n);
+        }
+        GraphStore.checkSize(file, channel, HEADER_BYTES + 4L * n * n);
+        int[] matrix = GraphStore.readInts(channel, HEADER_BYTES, n * n);
+        return new AllPairsDistances(graph, UNREACHABLE, matrix, null, null, null);
+      }
+      GraphStore.checkSize(file, channel, HEADER_BYTES + 4L * n + 4 + 8L * m);
+      long position = HEADER_BYTES;
+      int[] rowOffsets = GraphStore.readInts(channel, position, n + 1);
+      position += 4L * (n + 1);
+      int[] keys = GraphStore.readInts(channel, position, m);
+      position += 4L * m;
+      int[] values = GraphStore.readInts(channel, position, m);
+      return new AllPairsDistances(graph, radius, null, rowOffsets, keys, values);
+    }
+  }
+
+  /**
+   * 图的指纹，覆盖节点单词和全部边.
+   */
+  static long fingerprint(GraphSnapshot graph) {
+    long h = graph.nodeCount() * 31L + graph.edgeCount();
+    for (int u = 0; u < graph.nodeCount(); u++) {
+      h = h * 31 + graph.word(u).hashCode();
+    }
+    h = h * 31 + Arrays.hashCode(graph.offsets);
+    h = h * 31 + Arrays.hashCode(graph.targets);
+    return h * 31 + Arrays.hashCode(graph.weights);
+  }
+
+  /**
+   * 不小于2 * count的2的幂，装载因子不超过1/2.
+   */
+  private static int tableSize(int count) {
+    return count == 0 ? 0 : Integer.highestOneBit(count * 2 - 1) << 1;
+  }
+
+  private static int slot(int target, int mask) {
+    int h = target * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * 一个起点的搜索结果：按距离递增的count个节点.
+   */
+  @FunctionalInterface
+  private interface RowConsumer {
+    void accept(int source, int[] targets, int[] dist, int count);
+  }
+
+  private static void run(GraphSnapshot graph, int radius, int parallelism,
+                          RowConsumer consumer) {
+    int n = graph.nodeCount();
+    if (n == 0) {
+      return;
+    }
+    ThreadLocal<Searcher> searchers = ThreadLocal.withInitial(() -> new Searcher(graph));
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+    try {
+      pool.invoke(new Sources(0, n, radius, searchers, consumer));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * 按起点区间二分的ForkJoin任务，只在进程内使用，不需要序列化.
+   */
+  @SuppressWarnings("serial")
+  private static final class Sources extends RecursiveAction {
+    private final int from;
+    private final int to;
+    private final int radius;
+    private final ThreadLocal<Searcher> searchers;
+    private final RowConsumer consumer;
+
+    Sources(int from, int to, int radius, ThreadLocal<Searcher> searchers,
+            RowConsumer consumer) {
+      this.from = from;
+      this.to = to;
+      this.radius = radius;
+      this.searchers = searchers;
+      this.consumer = consumer;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > LEAF_SOURCES) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new Sources(from, mid, radius, searchers, consumer),
+                new Sources(mid, to, radius, searchers, consumer));
+        return;
+      }
+      Searcher searcher = searchers.get();
+      for (int s = from; s < to; s++) {
+        int count = searcher.search(s, radius);
+        consumer.accept(s, searcher.settled, searcher.settledDist, count);
+      }
+    }
+  }
+
+  /**
+   * 每个线程复用的Dijkstra状态. 只把本次搜索碰到的节点重置，
+   * 半径较小时一次搜索的代价与搜索到的节点数有关，而不是与n有关.
+   */
+  private static final class Searcher {
+    private final GraphSnapshot graph;
+    private final int[] dist;
+    private final IndexedMinHeap heap;
+    private int[] touched = new int[64];
+    private int[] settled = new int[64];
+    private int[] settledDist = new int[64];
+
+    Searcher(GraphSnapshot graph) {
+      this.graph = graph;
+      this.dist = new int[graph.nodeCount()];
+      this.heap = new IndexedMinHeap(graph.nodeCount());
+      Arrays.fill(dist, UNREACHABLE);
+    }
+
+    /**
+     * 从s出发搜索距离不超过radius的节点，结果按距离递增放在settled/settledDist中.
+     *
+     * @return 搜索到的节点数
+     */
+    int search(int s, int radius) {
+      final int[] offsets = graph.offsets;
+      final int[] targets = graph.targets;
+      final int[] weights = graph.weights;
+      int touchedCount = 0;
+      int count = 0;
+      dist[s] = 0;
+      touched[touchedCount++] = s;
+      heap.insertOrDecrease(s, 0);
+      while (!heap.isEmpty()) {
+        int u = heap.poll();
+        int du = dist[u];
+        if (count == settled.length) {
+          settled = Arrays.copyOf(settled, count * 2);
+          settledDist = Arrays.copyOf(settledDist, count * 2);
+        }
+        settled[count] = u;
+        settledDist[count++] = du;
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+          int v = targets[i];
+          long nd = (long) du + weights[i];
+          if (nd <= radius && nd < dist[v]) {
+            if (dist[v] == UNREACHABLE) {
+              if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+              }
+              touched[touchedCount++] = v;
+            }
+            dist[v] = (int) nd;
+            heap.insertOrDecrease(v, (int) nd);
+          }
+        }
+      }
+      for (int i = 0; i < touchedCount; i++) {
+        dist[touched[i]] = UNREACHABLE;
+      }
+      return count;
+    }
+  }
+}
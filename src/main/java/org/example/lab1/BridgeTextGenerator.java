@@ -0,0 +1,164 @@
+package org.example.lab1;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 根据桥接词生成新文本：在每对相邻单词之间插入一个随机的桥接词（如果有）.
+ * 从Reader流式读入、向Writer流式写出，内存占用只与分段大小有关；
+ * 多线程时各分段并行处理，按顺序写出.
+ */
+
+final class BridgeTextGenerator {
+  // 每个分段的单词数
+  private static final int SEGMENT_WORDS = 16 * 1024;
+
+  private final GraphSnapshot graph;
+  private final BridgeWordIndex index;
+
+  BridgeTextGenerator(GraphSnapshot graph) {
+    this.graph = graph;
+    this.index = graph.bridgeIndex();
+  }
+
+  /**
+   * 为previous和word之间挑选一个桥接词，没有时返回null.
+   */
+  private String pickBridge(String previous, String word, SplittableRandom random) {
+    int id1 = graph.id(previous.toLowerCase());
+    int id2 = graph.id(word.toLowerCase());
+    if (id1 < 0 || id2 < 0) {
+      return null;
+    }
+    int[] ids = index.bridgeWordIds(id1, id2);
+    return ids.length == 0 ? null : graph.word(ids[random.nextInt(ids.length)]);
+  }
+
+  /**
+   * 处理一个分段，previous是上一分段的最后一个单词（第一个分段为null）.
+   */
+  private String rewrite(String previous, List<String> words, SplittableRandom random) {
+    StringBuilder out = new StringBuilder();
+    for (String word : words) {
+      if (previous != null) {
+        String bridge = pickBridge(previous, word, random);
+        if (bridge != null) {
+          out.append(' ').append(bridge);
+        }
+        out.append(' ');
+      }
+      out.append(word);
+      previous = word;
+    }
+    return out.toString();
+  }
+
+  /**
+   * 从in读入文本，把插入桥接词后的文本写到out. 单词以空白符分隔，输出中以单个空格分隔.
+   *
+   * @param seed 随机数种子
+   * @param parallelism 并行处理的线程数，1表示在当前线程顺序处理
+   */
+  void generate(Reader in, Writer out, long seed, int parallelism) throws IOException {
+    long begin = GraphMetrics.begin();
+    SplittableRandom random = new SplittableRandom(seed);
+    WordReader reader = new WordReader(in);
+    String previous = null;
+    long count = 0;
+    if (parallelism <= 1) {
+      List<String> segment;
+      while (!(segment = reader.next(SEGMENT_WORDS)).isEmpty()) {
+        out.write(rewrite(previous, segment, random));
+        previous = segment.get(segment.size() - 1);
+        count += segment.size();
+      }
+      out.flush();
+      GraphMetrics.end(GraphMetrics.Operation.TEXT_GENERATION, begin, count);
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      // 最多同时有2 * parallelism个分段在处理中，保证内存有界
+      ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+      List<String> segment;
+      while (!(segment = reader.next(SEGMENT_WORDS)).isEmpty()) {
+        String context = previous;
+        List<String> words = segment;
+        SplittableRandom segmentRandom = random.split();
+        pending.add(executor.submit(() -> rewrite(context, words, segmentRandom)));
+        previous = segment.get(segment.size() - 1);
+        count += segment.size();
+        if (pending.size() >= 2 * parallelism) {
+          out.write(pending.poll().get());
+        }
+      }
+      while (!pending.isEmpty()) {
+        out.write(pending.poll().get());
+      }
+      out.flush();
+      GraphMetrics.end(GraphMetrics.Operation.TEXT_GENERATION, begin, count);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Text generation interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Text generation failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * 从Reader中按空白符（\s）切分单词.
+   */
+  private static final class WordReader {
+    private final Reader in;
+    private final char[] buf = new char[8192];
+    private int pos;
+    private int len;
+    private final StringBuilder word = new StringBuilder();
+
+    WordReader(Reader in) {
+      this.in = in;
+    }
+
+    /**
+     * 读取最多max个单词，读到末尾时返回空列表.
+     */
+    List<String> next(int max) throws IOException {
+      List<String> words = new ArrayList<>();
+      while (words.size() < max) {
+        if (pos == len) {
+          len = in.read(buf);
+          pos = 0;
+          if (len <= 0) {
+            len = 0;
+            if (word.length() > 0) {
+              words.add(word.toString());
+              word.setLength(0);
+            }
+            break;
+          }
+        }
+        char c = buf[pos++];
+        if (c == ' ' || (c >= '\t' && c <= '\r')) {
+          if (word.length() > 0) {
+            words.add(word.toString());
+            word.setLength(0);
+          }
+        } else {
+          word.append(c);
+        }
+      }
+      return words;
+    }
+  }
+}
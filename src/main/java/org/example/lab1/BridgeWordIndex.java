@@ -0,0 +1,134 @@
+package org.example.lab1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 桥接词索引：bridge(w1, w2) = out(w1) ∩ in(w2).
+ * 出边和入边都是按编号有序的int数组，入度很高的节点额外保存一个入邻居位图，
+ * 查询代价只与两个节点的度数有关，与语料长度无关.
+ */
+
+public final class BridgeWordIndex {
+  // 入度不低于该值、且位图不比入邻居数组大（入度 >= 节点数 / 32）的节点使用位图
+  private static final int HUB_MIN_DEGREE = 1024;
+
+  private final GraphSnapshot graph;
+  private final int[] inOffsets;
+  private final int[] inSources;
+  private final long[][] hubBits; // 非枢纽节点为null
+
+  BridgeWordIndex(GraphSnapshot graph) {
+    this.graph = graph;
+    int n = graph.nodeCount();
+    GraphSnapshot.Reverse reverse = graph.reverse();
+    inOffsets = reverse.offsets;
+    inSources = reverse.sources;
+    hubBits = new long[n][];
+    for (int v = 0; v < n; v++) {
+      int degree = inOffsets[v + 1] - inOffsets[v];
+      if (degree >= HUB_MIN_DEGREE && (long) degree * 32 >= n) {
+        long[] bits = new long[(n + 63) >>> 6];
+        for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++) {
+          bits[inSources[i] >>> 6] |= 1L << inSources[i];
+        }
+        hubBits[v] = bits;
+      }
+    }
+  }
+
+  /**
+   * word1到word2的桥接词编号，按编号升序.
+   */
+  public int[] bridgeWordIds(int word1, int word2) {
+    int[] targets = graph.targets;
+    int outFrom = graph.offsets[word1];
+    int outTo = graph.offsets[word1 + 1];
+    int inFrom = inOffsets[word2];
+    int inTo = inOffsets[word2 + 1];
+    int outSize = outTo - outFrom;
+    int inSize = inTo - inFrom;
+    int[] result = new int[Math.min(outSize, inSize)];
+    int k = 0;
+    long[] bits = hubBits[word2];
+    if (bits != null) {
+      for (int i = outFrom; i < outTo; i++) {
+        int w = targets[i];
+        if ((bits[w >>> 6] & (1L << w)) != 0) {
+          result[k++] = w;
+        }
+      }
+    } else if (outSize * 16 < inSize || inSize * 16 < outSize) {
+      // 两边大小悬殊时，遍历小的一边并在大的一边二分查找
+      boolean outSmaller = outSize < inSize;
+      int[] small = outSmaller ? targets : inSources;
+      int[] large = outSmaller ? inSources : targets;
+      int from = outSmaller ? outFrom : inFrom;
+      int to = outSmaller ? outTo : inTo;
+      int largeFrom = outSmaller ? inFrom : outFrom;
+      int largeTo = outSmaller ? inTo : outTo;
+      for (int i = from; i < to; i++) {
+        if (Arrays.binarySearch(large, largeFrom, largeTo, small[i]) >= 0) {
+          result[k++] = small[i];
+        }
+      }
+    } else {
+      int i = outFrom;
+      int j = inFrom;
+      while (i < outTo && j < inTo) {
+        int a = targets[i];
+        int b = inSources[j];
+        if (a < b) {
+          i++;
+        } else if (a > b) {
+          j++;
+        } else {
+          result[k++] = a;
+          i++;
+          j++;
+        }
+      }
+    }
+    return k == result.length ? result : Arrays.copyOf(result, k);
+  }
+
+  /**
+   * word1到word2的桥接词，任一单词不在图中时返回null.
+   */
+  public List<String> bridgeWords(String word1, String word2) {
+    long begin = GraphMetrics.begin();
+    int id1 = graph.id(word1);
+    int id2 = graph.id(word2);
+    List<String> words = null;
+    if (id1 >= 0 && id2 >= 0) {
+      int[] ids = bridgeWordIds(id1, id2);
+      words = new ArrayList<>(ids.length);
+      for (int id : ids) {
+        words.add(graph.word(id));
+      }
+    }
+    GraphMetrics.end(GraphMetrics.Operation.BRIDGE_QUERY, begin, 1);
+    return words;
+  }
+
+  /**
+   * 并行回答一批桥接词查询，第i个结果对应第i对单词，单词不在图中时结果为null.
+   *
+   * @param pairs 每个元素是{word1, word2}，单词应为小写
+   */
+  public List<List<String>> bridgeWords(List<String[]> pairs) {
+    return IntStream.range(0, pairs.size()).parallel()
+            .mapToObj(i -> bridgeWords(pairs.get(i)[0], pairs.get(i)[1]))
+            .collect(Collectors.toList());
+  }
+
+  /**
+   * 节点的入度.
+   */
+  public int inDegree(int v) {
+    return inOffsets[v + 1] - inOffsets[v];
+  }
+}
@@ -0,0 +1,173 @@
+package org.example.lab1;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 可以在多个线程之间共享的图.
+ * 读操作不加锁，在当前发布的不可变版本（CSR快照和单词序列）上执行，一次查询始终看到一致的图；
+ * 写操作串行地修改内部的Graph，完成后发布新版本（写时复制）. 多次修改可以用update合并成一次发布.
+ * 随机游走的状态保存在各自的WalkSession中.
+ */
+
+public final class ConcurrentGraph {
+  /**
+   * 一个已发布的版本.
+   */
+  private record Version(GraphSnapshot graph, List<String> words, long number) {
+  }
+
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final Graph graph; // 只在持有writeLock时访问
+  private volatile Version version;
+
+  public ConcurrentGraph() {
+    this(new Graph());
+  }
+
+  /**
+   * 以已有的图为初始内容，之后只能通过本对象修改这个图.
+   */
+  public ConcurrentGraph(Graph graph) {
+    this.graph = graph;
+    version = new Version(graph.freeze(), publishedWords(graph.words()), 0);
+  }
+
+  /**
+   * 在写锁内对图做一批修改，全部完成后发布一个新版本.
+   */
+  public void update(Consumer<Graph> writer) {
+    writeLock.lock();
+    try {
+      try {
+        writer.accept(graph);
+      } finally {
+        version = new Version(graph.freeze(), publishedWords(graph.words()),
+                version.number() + 1);
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * 可以发布给读线程的单词序列. Graph中可变的单词序列是只追加的TokenSequence，
+   * 取其当前长度的前缀视图即可，不复制单词；其余情况（空序列或从快照载入的序列）本身是只读的.
+   */
+  private static List<String> publishedWords(List<String> words) {
+    return words instanceof TokenSequence tokens ? tokens.prefix(tokens.size()) : words;
+  }
+
+  public void addEdge(String source, String destination) {
+    update(g -> g.addEdge(source, destination));
+  }
+
+  public void createGraph(List<String> words) {
+    update(g -> g.createGraph(words));
+  }
+
+  public void setWords(List<String> words) {
+    update(g -> g.setWords(words));
+  }
+
+  public void setWordsMap(Map<String, Map<String, Integer>> wordsMap) {
+    update(g -> g.setWordsMap(wordsMap));
+  }
+
+  /**
+   * 追加文本，见Graph.appendText. 已发布的单词不会被复制.
+   */
+  public void appendText(String text) {
+    update(g -> g.appendText(text));
+  }
+
+  /**
+   * 追加单词，见Graph.appendWords.
+   */
+  public void appendWords(List<String> words) {
+    update(g -> g.appendWords(words));
+  }
+
+  /**
+   * 当前版本的图快照.
+   */
+  public GraphSnapshot snapshot() {
+    return version.graph();
+  }
+
+  /**
+   * 当前版本的单词序列，只读且不会随之后的修改变化.
+   */
+  public List<String> getWords() {
+    return version.words();
+  }
+
+  /**
+   * 已发布的版本号，每次修改后加1.
+   */
+  public long version() {
+    return version.number();
+  }
+
+  public String queryBridgeWords(String word1, String word2) {
+    word1 = word1.toLowerCase();
+    word2 = word2.toLowerCase();
+    return Graph.bridgeWordsMessage(word1, word2,
+            snapshot().bridgeIndex().bridgeWords(word1, word2));
+  }
+
+  /**
+   * 与Graph.calcAllShortestPaths相同的结果，不打印路径.
+   */
+  public List<List<String>> calcAllShortestPaths(String word1, String word2) {
+    word1 = word1.toLowerCase();
+    word2 = word2.toLowerCase();
+    GraphSnapshot g = snapshot();
+    List<List<String>> error = Graph.checkPathQuery(g, word1, word2);
+    if (error != null) {
+      return error;
+    }
+    return Graph.formatPaths(g.pointToPoint().bidirectional(g.id(word1), g.id(word2)));
+  }
+
+  /**
+   * 单源最短路径树，起点不在图中时返回null.
+   */
+  public ShortestPathTree calcShortestPathTree(String word) {
+    GraphSnapshot g = snapshot();
+    int source = g.id(word.toLowerCase());
+    return source < 0 ? null : g.shortestPathTree(source);
+  }
+
+  /**
+   * 同Graph.isReachable.
+   */
+  public boolean isReachable(String word1, String word2) {
+    return snapshot().reachability().reachable(word1, word2);
+  }
+
+  /**
+   * 同Graph.findShortestPaths.
+   */
+  public ShortestPaths findShortestPaths(String word1, String word2) {
+    return snapshot().pointToPoint().bidirectional(word1, word2);
+  }
+
+  public void generateNewText(Reader in, Writer out, int parallelism) throws IOException {
+    new BridgeTextGenerator(snapshot()).generate(in, out, new SecureRandom().nextLong(),
+            parallelism);
+  }
+
+  /**
+   * 新建一个随机游走会话，每一步都使用当时最新的版本.
+   */
+  public WalkSession newWalkSession() {
+    return new WalkSession(this::snapshot, new SecureRandom(), null);
+  }
+}
@@ -0,0 +1,99 @@
+package org.example.lab1;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * 直接在UTF-8字节上切分单词的分词器，规则与GraphUtils.readWordsFromFile一致：
+ * 以空白符、逗号、句点分隔，转成小写并去掉非字母字符，空串丢弃.
+ * 纯ASCII的单词走手写的快速路径，含非ASCII字节的单词回退到按字符串处理.
+ * 单词可以跨越多次feed调用，适合分块读取的内存映射文件.
+ */
+
+final class CorpusTokenizer {
+  private final WordInterner interner;
+  private byte[] letters = new byte[64]; // 当前单词中的小写字母
+  private int letterLen;
+  private byte[] raw = new byte[64]; // 当前单词的原始字节，仅用于非ASCII回退
+  private int rawLen;
+  private boolean nonAscii;
+
+  CorpusTokenizer() {
+    this(new WordInterner());
+  }
+
+  CorpusTokenizer(WordInterner interner) {
+    this.interner = interner;
+  }
+
+  /**
+   * 是否为分隔符：\s（空格、\t、\n、\u000B、\f、\r）、逗号或句点.
+   */
+  static boolean isDelimiter(byte b) {
+    return b == ' ' || b == ',' || b == '.' || (b >= '\t' && b <= '\r');
+  }
+
+  /**
+   * 处理buf中剩余的字节，每得到一个完整单词就交给sink.
+   */
+  void feed(ByteBuffer buf, Consumer<String> sink) {
+    int end = buf.limit();
+    for (int p = buf.position(); p < end; p++) {
+      byte b = buf.get(p);
+      if (isDelimiter(b)) {
+        endWord(sink);
+        continue;
+      }
+      if (rawLen == raw.length) {
+        raw = Arrays.copyOf(raw, raw.length * 2);
+      }
+      raw[rawLen++] = b;
+      if (b >= 'a' && b <= 'z') {
+        appendLetter(b);
+      } else if (b >= 'A' && b <= 'Z') {
+        appendLetter((byte) (b + ('a' - 'A')));
+      } else if (b < 0) {
+        nonAscii = true;
+      }
+    }
+    buf.position(end);
+  }
+
+  /**
+   * 输入结束，输出最后一个单词.
+   */
+  void finish(Consumer<String> sink) {
+    endWord(sink);
+  }
+
+  private void appendLetter(byte b) {
+    if (letterLen == letters.length) {
+      letters = Arrays.copyOf(letters, letters.length * 2);
+    }
+    letters[letterLen++] = b;
+  }
+
+  private void endWord(Consumer<String> sink) {
+    if (rawLen == 0) {
+      return;
+    }
+    String word;
+    if (nonAscii) {
+      // 非ASCII字符的小写形式可能是ASCII字母（如开尔文符号），按原有逻辑处理
+      String cleaned = new String(raw, 0, rawLen, StandardCharsets.UTF_8)
+              .toLowerCase().replaceAll("[^a-zA-Z]", "");
+      byte[] bytes = cleaned.getBytes(StandardCharsets.ISO_8859_1);
+      word = bytes.length == 0 ? null : interner.intern(bytes, bytes.length);
+    } else {
+      word = letterLen == 0 ? null : interner.intern(letters, letterLen);
+    }
+    rawLen = 0;
+    letterLen = 0;
+    nonAscii = false;
+    if (word != null) {
+      sink.accept(word);
+    }
+  }
+}
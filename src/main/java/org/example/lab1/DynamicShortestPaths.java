@@ -0,0 +1,189 @@
+package org.example.lab1;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 热点起点的单源最短路径，在图被追加修改后增量修复，而不是重新计算.
+ * 修改先累积下来，下一次取结果时一次性修复：
+ * 权重增加的紧边会使下游节点失去支撑，失去全部支撑的节点重置后从未受影响的前驱重新求值；
+ * 新增或变短的边从其终点开始做松弛. 两部分在同一个堆里完成.
+ *
+ * <p>Graph只追加修改时节点编号不变、新节点排在后面，旧的距离数组整段复制即可.
+ * 堆和标记数组在多次修复之间复用，一次修复的工作量只与受影响的节点和边有关.
+ */
+
+public final class DynamicShortestPaths implements GraphListener {
+  private record Edge(String source, String target) {
+  }
+
+  private final String source;
+  private ShortestPathTree tree;
+  // 尚未修复的边变化：{最早的旧权重, 最新的新权重}
+  private final Map<Edge, int[]> pending = new LinkedHashMap<>();
+  private boolean replaced;
+  // 修复用的工作区，只在节点数增长时扩容
+  private IndexedMinHeap heap = new IndexedMinHeap(0);
+  private int[] decided = new int[0]; // 等于round时表示本轮已确定
+  private int[] affected = new int[0]; // 等于round时表示本轮失去了全部支撑
+  private int round;
+
+  DynamicShortestPaths(ShortestPathTree tree) {
+    this.source = tree.source();
+    this.tree = tree;
+  }
+
+  public String source() {
+    return source;
+  }
+
+  @Override
+  public synchronized void graphChanged(GraphChange change) {
+    if (change.replaced()) {
+      replaced = true;
+      pending.clear();
+      return;
+    }
+    for (GraphChange.EdgeChange edge : change.edges()) {
+      int[] weights = pending.computeIfAbsent(new Edge(edge.source(), edge.target()),
+              k -> new int[] {edge.oldWeight(), edge.oldWeight()});
+      weights[1] = edge.newWeight();
+    }
+  }
+
+  /**
+   * 返回与current一致的最短路径树，必要时先修复. 起点已不在图中时返回null.
+   */
+  synchronized ShortestPathTree tree(GraphSnapshot current) {
+    if (tree != null && tree.graph() == current && pending.isEmpty() && !replaced) {
+      return tree;
+    }
+    int s = current.id(source);
+    if (s < 0) {
+      tree = null;
+    } else if (tree == null || replaced || !sameIds(tree.graph(), current)
+            || pending.size() > current.edgeCount() / 4) {
+      // 编号变了或者变化太多时直接重新计算
+      tree = ShortestPathTree.compute(current, s);
+    } else {
+      tree = repair(tree, current, s);
+    }
+    pending.clear();
+    replaced = false;
+    return tree;
+  }
+
+  /**
+   * 旧快照的编号在新快照中是否保持不变. 追加修改只会在末尾增加节点，比较最后一个旧节点即可；
+   * 整个图被替换时会收到replaced事件.
+   */
+  private static boolean sameIds(GraphSnapshot oldGraph, GraphSnapshot graph) {
+    int oldN = oldGraph.nodeCount();
+    return oldN <= graph.nodeCount()
+            && (oldN == 0 || oldGraph.word(oldN - 1).equals(graph.word(oldN - 1)));
+  }
+
+  private void ensureCapacity(int n) {
+    if (decided.length < n) {
+      int capacity = Math.max(n, decided.length * 2);
+      heap = new IndexedMinHeap(capacity);
+      decided = Arrays.copyOf(decided, capacity);
+      affected = Arrays.copyOf(affected, capacity);
+    }
+    if (round == Integer.MAX_VALUE) {
+      Arrays.fill(decided, 0);
+      Arrays.fill(affected, 0);
+      round = 0;
+    }
+    round++;
+  }
+
+  private ShortestPathTree repair(ShortestPathTree old, GraphSnapshot graph, int s) {
+    long begin = GraphMetrics.begin();
+    int n = graph.nodeCount();
+    int[] oldDist = old.distances();
+    int unreachable = ShortestPathTree.UNREACHABLE;
+    int[] dist = Arrays.copyOf(oldDist, n);
+    Arrays.fill(dist, oldDist.length, n, unreachable);
+    GraphSnapshot.Reverse reverse = graph.reverse();
+    ensureCapacity(n);
+    final int[] decided = this.decided;
+    final int[] affected = this.affected;
+    final int round = this.round;
+
+    // 第一步：紧边权重增加，按旧距离从小到大找出失去全部支撑的节点
+    int[] affectedList = new int[16];
+    int affectedCount = 0;
+    for (Map.Entry<Edge, int[]> entry : pending.entrySet()) {
+      int oldWeight = entry.getValue()[0];
+      int newWeight = entry.getValue()[1];
+      if (oldWeight > 0 && newWeight > oldWeight) {
+        int u = graph.id(entry.getKey().source());
+        int v = graph.id(entry.getKey().target());
+        if (v != s && dist[u] != unreachable && (long) dist[u] + oldWeight == dist[v]) {
+          heap.insertOrDecrease(v, dist[v]);
+        }
+      }
+    }
+    while (!heap.isEmpty()) {
+      int x = heap.poll();
+      decided[x] = round;
+      boolean supported = false;
+      for (int i = reverse.offsets[x]; i < reverse.offsets[x + 1] && !supported; i++) {
+        int p = reverse.sources[i];
+        supported = affected[p] != round && dist[p] != unreachable
+                && (long) dist[p] + reverse.weights[i] == dist[x];
+      }
+      if (supported) {
+        continue;
+      }
+      affected[x] = round;
+      if (affectedCount == affectedList.length) {
+        affectedList = Arrays.copyOf(affectedList, affectedCount * 2);
+      }
+      affectedList[affectedCount++] = x;
+      for (int i = graph.offsets[x]; i < graph.offsets[x + 1]; i++) {
+        int y = graph.targets[i];
+        if (decided[y] != round && y != s && dist[y] != unreachable && dist[y] > dist[x]) {
+          heap.insertOrDecrease(y, dist[y]);
+        }
+      }
+    }
+
+    // 第二步：受影响的节点重置，从未受影响的前驱重新求上界
+    for (int k = 0; k < affectedCount; k++) {
+      dist[affectedList[k]] = unreachable;
+    }
+    for (int k = 0; k < affectedCount; k++) {
+      int x = affectedList[k];
+      long best = unreachable;
+      for (int i = reverse.offsets[x]; i < reverse.offsets[x + 1]; i++) {
+        int p = reverse.sources[i];
+        if (affected[p] != round && dist[p] != unreachable) {
+          best = Math.min(best, (long) dist[p] + reverse.weights[i]);
+        }
+      }
+      if (best < unreachable) {
+        dist[x] = (int) best;
+        heap.insertOrDecrease(x, (int) best);
+      }
+    }
+    // 新增或变短的边
+    for (Map.Entry<Edge, int[]> entry : pending.entrySet()) {
+      int oldWeight = entry.getValue()[0];
+      int newWeight = entry.getValue()[1];
+      if (oldWeight == 0 || newWeight < oldWeight) {
+        int u = graph.id(entry.getKey().source());
+        int v = graph.id(entry.getKey().target());
+        if (dist[u] != unreachable && (long) dist[u] + newWeight < dist[v]) {
+          dist[v] = dist[u] + newWeight;
+          heap.insertOrDecrease(v, dist[v]);
+        }
+      }
+    }
+    int settled = ShortestPathTree.propagate(graph, dist, heap);
+    GraphMetrics.end(GraphMetrics.Operation.SHORTEST_PATH, begin, settled);
+    return new ShortestPathTree(graph, s, dist);
+  }
+}
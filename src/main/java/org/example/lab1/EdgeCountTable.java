@@ -0,0 +1,119 @@
+package org.example.lab1;
+
+import java.util.Arrays;
+
+/**
+ * 边计数表：以 (源编号 << 32 | 目标编号) 为键、int计数为值的开放寻址散列表（线性探测）.
+ * 键和值都存放在基本类型数组中，增加计数时不装箱也不分配对象，只有扩容时才分配.
+ */
+
+final class EdgeCountTable {
+  private static final long EMPTY = -1L; // 编号非负，合法的键不会等于-1
+  private long[] keys;
+  private int[] counts;
+  private int shift; // 64 - log2(容量)，用于乘法散列取高位
+  private int size;
+
+  /**
+   * 逐条访问表中的边.
+   */
+  interface Visitor {
+    void visit(int source, int target, int count);
+  }
+
+  EdgeCountTable(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+    allocate(capacity);
+  }
+
+  /**
+   * 不同边的数量.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * 边source->target的计数，不存在时返回0.
+   */
+  int get(int source, int target) {
+    long key = key(source, target);
+    int mask = keys.length - 1;
+    for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+      long k = keys[slot];
+      if (k == EMPTY) {
+        return 0;
+      }
+      if (k == key) {
+        return counts[slot];
+      }
+    }
+  }
+
+  /**
+   * 把边source->target的计数增加delta，返回原来的计数（边不存在时为0）.
+   */
+  int add(int source, int target, int delta) {
+    long key = key(source, target);
+    int mask = keys.length - 1;
+    int slot = slot(key);
+    for (long k = keys[slot]; k != EMPTY; k = keys[slot]) {
+      if (k == key) {
+        int old = counts[slot];
+        counts[slot] = old + delta;
+        return old;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    counts[slot] = delta;
+    if (2 * ++size > keys.length) {
+      grow();
+    }
+    return 0;
+  }
+
+  /**
+   * 按散列槽的顺序访问所有边.
+   */
+  void forEach(Visitor visitor) {
+    for (int i = 0; i < keys.length; i++) {
+      long k = keys[i];
+      if (k != EMPTY) {
+        visitor.visit((int) (k >>> 32), (int) k, counts[i]);
+      }
+    }
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldCounts = counts;
+    allocate(oldKeys.length * 2);
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int slot = slot(oldKeys[i]);
+        while (keys[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        counts[slot] = oldCounts[i];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    Arrays.fill(keys, EMPTY);
+    counts = new int[capacity];
+    shift = 64 - Integer.numberOfTrailingZeros(capacity);
+  }
+
+  private int slot(long key) {
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+  }
+
+  private static long key(int source, int target) {
+    return (long) source << 32 | (target & 0xFFFFFFFFL);
+  }
+}
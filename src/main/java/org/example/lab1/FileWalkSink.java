@@ -0,0 +1,331 @@
+package org.example.lab1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 以追加方式把游走写入文件，经过大缓冲区批量写出.
+ * 文本格式每行一条游走，节点之间用" -> "分隔；
+ * 二进制格式每次打开追加一个数据块：块头（0字节、魔数、版本、词典），随后每条游走为
+ * 变长整数编码的长度（至少为1）和节点编号.
+ * 开启后台刷新时由单独的线程写盘，生成游走的线程只在缓冲区全部用完时才等待.
+ */
+
+public final class FileWalkSink implements WalkSink {
+  /**
+   * 输出格式.
+   */
+  public enum Format {
+    TEXT, BINARY
+  }
+
+  static final int BINARY_MAGIC = 0x57414C4B; // "WALK"
+  static final int BINARY_VERSION = 1;
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final int BUFFER_COUNT = 4; // 后台刷新时轮换使用的缓冲区个数
+  private static final byte[] ARROW = " -> ".getBytes(StandardCharsets.US_ASCII);
+
+  private final FileChannel channel;
+  private final GraphSnapshot graph;
+  private final Format format;
+  private final byte[][] wordBytes; // 按编号缓存单词的UTF-8编码
+  private ByteBuffer buffer;
+  // 后台刷新
+  private final BlockingQueue<ByteBuffer> full;
+  private final BlockingQueue<ByteBuffer> free;
+  private final Thread flusher;
+  private int inFlight; // 已交给后台线程但还没写完的缓冲区数
+  private volatile IOException failure;
+
+  /**
+   * 打开输出文件，文件不存在时创建，已有内容保留.
+   *
+   * @param path 输出文件
+   * @param graph 游走所在的图，用于把节点编号转换成单词
+   * @param format 输出格式
+   * @param backgroundFlush 是否由后台线程写盘
+   */
+  public FileWalkSink(Path path, GraphSnapshot graph, Format format, boolean backgroundFlush)
+          throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    this.graph = graph;
+    this.format = format;
+    this.wordBytes = new byte[graph.nodeCount()][];
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    if (backgroundFlush) {
+      full = new ArrayBlockingQueue<>(BUFFER_COUNT);
+      free = new ArrayBlockingQueue<>(BUFFER_COUNT);
+      for (int i = 1; i < BUFFER_COUNT; i++) {
+        free.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+      }
+      flusher = new Thread(this::flushLoop, "walk-sink-flusher");
+      flusher.setDaemon(true);
+      flusher.start();
+    } else {
+      full = null;
+      free = null;
+      flusher = null;
+    }
+    if (format == Format.BINARY) {
+      writeHeader();
+    }
+  }
+
+  private void writeHeader() throws IOException {
+    synchronized (this) {
+      ensure(13);
+      buffer.put((byte) 0); // 游走长度至少为1，0标记块头
+      buffer.putInt(BINARY_MAGIC);
+      buffer.putInt(BINARY_VERSION);
+      buffer.putInt(graph.nodeCount());
+      for (int id = 0; id < graph.nodeCount(); id++) {
+        byte[] bytes = bytesOf(id);
+        ensure(5 + bytes.length);
+        putVarInt(bytes.length);
+        buffer.put(bytes);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void accept(int[] nodes, int length) {
+    try {
+      if (format == Format.BINARY) {
+        ensure(5);
+        putVarInt(length);
+        for (int i = 0; i < length; i++) {
+          ensure(5);
+          putVarInt(nodes[i]);
+        }
+      } else {
+        for (int i = 0; i < length; i++) {
+          putText(bytesOf(nodes[i]), i);
+        }
+        ensure(1);
+        buffer.put((byte) '\n'); // 换行符表示路径结束
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * 按单词写入一条游走，单词不必是graph中的节点（例如游走期间图被替换过）. 只支持文本格式.
+   */
+  public synchronized void acceptWords(List<String> walk) {
+    if (format != Format.TEXT) {
+      throw new IllegalStateException("Word walks can only be written as text");
+    }
+    try {
+      for (int i = 0; i < walk.size(); i++) {
+        putText(walk.get(i).getBytes(StandardCharsets.UTF_8), i);
+      }
+      ensure(1);
+      buffer.put((byte) '\n');
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void putText(byte[] bytes, int index) throws IOException {
+    ensure(bytes.length + ARROW.length + 1);
+    if (index > 0) {
+      buffer.put(ARROW); // 添加节点之间的箭头
+    }
+    buffer.put(bytes);
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    handOff();
+    if (flusher != null) {
+      while (inFlight > 0 && failure == null) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while flushing walks", e);
+        }
+      }
+    }
+    checkFailure();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      if (flusher != null) {
+        flusher.interrupt();
+      }
+      channel.close();
+    }
+  }
+
+  /**
+   * 输出文件是否还能写入. 写文件的线程被中断时通道会被关闭，之后只能重新打开.
+   */
+  public boolean isOpen() {
+    return channel.isOpen() && failure == null;
+  }
+
+  /**
+   * 读取二进制格式的游走文件（可能包含多个追加的数据块），把节点编号转换回单词.
+   */
+  public static List<List<String>> readBinary(Path path) throws IOException {
+    ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+    List<List<String>> walks = new ArrayList<>();
+    String[] dictionary = null;
+    while (in.hasRemaining()) {
+      int length = getVarInt(in);
+      if (length == 0) {
+        if (in.getInt() != BINARY_MAGIC) {
+          throw new IOException("Bad walk file block header");
+        }
+        int version = in.getInt();
+        if (version != BINARY_VERSION) {
+          throw new IOException("Unsupported walk file version: " + version);
+        }
+        dictionary = new String[in.getInt()];
+        for (int id = 0; id < dictionary.length; id++) {
+          byte[] bytes = new byte[getVarInt(in)];
+          in.get(bytes);
+          dictionary[id] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        continue;
+      }
+      if (dictionary == null) {
+        throw new IOException("Walk file does not start with a block header");
+      }
+      List<String> walk = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        walk.add(dictionary[getVarInt(in)]);
+      }
+      walks.add(walk);
+    }
+    return walks;
+  }
+
+  private static int getVarInt(ByteBuffer in) {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = in.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  private byte[] bytesOf(int id) {
+    byte[] bytes = wordBytes[id];
+    if (bytes == null) {
+      bytes = graph.word(id).getBytes(StandardCharsets.UTF_8);
+      wordBytes[id] = bytes;
+    }
+    return bytes;
+  }
+
+  private void putVarInt(int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /**
+   * 保证缓冲区至少还有n个字节的空间.
+   */
+  private void ensure(int n) throws IOException {
+    if (buffer.remaining() < n) {
+      handOff();
+      if (buffer.remaining() < n) {
+        throw new IOException("Walk record element larger than buffer: " + n);
+      }
+    }
+  }
+
+  /**
+   * 写出当前缓冲区：同步模式直接写盘，后台模式交给刷新线程并换一个空缓冲区.
+   */
+  private void handOff() throws IOException {
+    checkFailure();
+    if (buffer.position() == 0) {
+      return;
+    }
+    buffer.flip();
+    if (flusher == null) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+      return;
+    }
+    try {
+      full.put(buffer);
+    } catch (InterruptedException e) {
+      // 缓冲区没有交出去，恢复成写入状态，内容保留到下一次写出
+      buffer.position(buffer.limit()).limit(buffer.capacity());
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing walks", e);
+    }
+    // 持有锁，刷新线程要等到这里之后才能减少inFlight
+    inFlight++;
+    // 缓冲区已经交给刷新线程，必须换到一个空缓冲区；刷新线程写完就会归还，这里不响应中断
+    boolean interrupted = false;
+    while (true) {
+      try {
+        buffer = free.take();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void flushLoop() {
+    try {
+      while (true) {
+        ByteBuffer next = full.take();
+        try {
+          while (next.hasRemaining()) {
+            channel.write(next);
+          }
+        } catch (IOException e) {
+          failure = e;
+        }
+        next.clear();
+        free.put(next);
+        synchronized (this) {
+          inFlight--;
+          notifyAll();
+        }
+      }
+    } catch (InterruptedException e) {
+      // close()时结束
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    IOException e = failure;
+    if (e != null) {
+      throw e;
+    }
+  }
+}
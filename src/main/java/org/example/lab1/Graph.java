@@ -1,14 +1,17 @@
 package org.example.lab1;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.SecureRandom;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -16,41 +19,62 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * 表示一个有向图，其中节点是单词，边表示文本中的出现.
  */
 
 public class Graph {
-  private Map<String, Map<String, Integer>> wordsMap; //图结构
-  private String currentNode;
-  private boolean walking = false;
+  private GraphBuilder builder; //图结构，从二进制快照载入时首次修改才构建
+  private GraphSnapshot snapshot; // builder的只读CSR快照，图被修改后置空
+  private SecureRandom random = new SecureRandom();
+
+  // 交互式随机游走的状态，结束时把路径写入文件；第一次使用时创建，避免在构造期间泄露this
+  private WalkSession walkSession;
 
   public boolean isWalking() {
-    return walking;
+    return walkSession != null && walkSession.isWalking();
   }
 
-  private SecureRandom random = new SecureRandom();
+  private WalkSession walkSession() {
+    if (walkSession == null) {
+      walkSession = new WalkSession(this::freeze, random, this::writePathToFile);
+    }
+    return walkSession;
+  }
 
-  private List<String> path = new ArrayList<>();
+  private List<String> words; // TokenSequence，或从快照载入的只读序列
 
-  private Set<String> visitedEdges = new HashSet<>();
+  private static final String WALK_FILE = "random_walk.txt";
+  private static final int MAX_RENDER_EDGES = 5000; // 进程内渲染时最多画的边数
+  private FileWalkSink walkSink; // 游走结果追加写入WALK_FILE
 
-  private List<String> words;
+  private final List<GraphListener> listeners = new CopyOnWriteArrayList<>();
+  private final Map<String, DynamicShortestPaths> hotSources = new HashMap<>();
 
   public List<String> getWords() {
-    return Collections.unmodifiableList(words);
+    return Collections.unmodifiableList(words());
+  }
+
+  /**
+   * 单词序列，未设置时为空列表.
+   */
+  List<String> words() {
+    return words == null ? List.of() : words;
   }
 
   public void setWords(List<String> words) {
-    this.words = new ArrayList<>(words);
+    this.words = TokenSequence.of(words);
+    fireGraphChanged(List.of(), false, true);
   }
 
   public Map<String, Map<String, Integer>> getWordsMap() {
-    return Collections.unmodifiableMap(wordsMap);
+    return freeze().asMap();
   }
 
   /**set方法.
@@ -58,16 +82,49 @@ public class Graph {
    * @param wordsMap 要设置图
    */
   public void setWordsMap(Map<String, Map<String, Integer>> wordsMap) {
-    Map<String, Map<String, Integer>> copy = new HashMap<>();
-    for (Map.Entry<String, Map<String, Integer>> entry : wordsMap.entrySet()) {
-      copy.put(entry.getKey(), new HashMap<>(entry.getValue()));
-    }
-    this.wordsMap = copy;
+    this.builder = GraphBuilder.of(wordsMap);
+    this.snapshot = null;
+    fireGraphChanged(List.of(), true, false);
   }
 
   public Graph() {
 
-    wordsMap = new HashMap<>();
+    builder = new GraphBuilder();
+  }
+
+  private Graph(GraphSnapshot snapshot, List<String> words) {
+    this.snapshot = snapshot;
+    this.words = words;
+  }
+
+  /**
+   * 可变的图结构，从快照载入的图在第一次修改时才由快照构建.
+   */
+  private GraphBuilder builder() {
+    if (builder == null) {
+      builder = GraphBuilder.of(snapshot);
+    }
+    return builder;
+  }
+
+  /**
+   * 把图和单词序列保存为二进制快照.
+   *
+   * @param file 快照文件
+   */
+  public void saveSnapshot(Path file) throws IOException {
+    GraphStore.save(freeze(), words == null ? List.of() : words, file);
+  }
+
+  /**
+   * 载入二进制快照. 文件通过内存映射读取，邻接数组整块复制，单词序列直接在映射区上按需解码.
+   *
+   * @param file 快照文件
+   * @return 载入的图
+   */
+  public static Graph loadSnapshot(Path file) throws IOException {
+    GraphStore.Loaded loaded = GraphStore.load(file);
+    return new Graph(loaded.graph(), loaded.words());
   }
   /**
    * 添加边.
@@ -76,41 +133,156 @@ public class Graph {
   public void addEdge(String source, String destination) {
     source = source.toLowerCase();
     destination = destination.toLowerCase();
+    int oldWeight = addEdgeWeight(source, destination, 1);
+    if (!listeners.isEmpty()) {
+      fireGraphChanged(List.of(new GraphChange.EdgeChange(source, destination,
+              oldWeight, oldWeight + 1)), false, false);
+    }
+  }
 
-    Map<String, Integer> neighbors = this.wordsMap.get(source);
-    if (neighbors == null) {
-      neighbors = new HashMap<>();
-      this.wordsMap.put(source, neighbors);
+  /**
+   * 先按edges的编号顺序加入它的单词，再把它的每条边的权重加到图上，只发出一个修改事件.
+   * 用于合并并行构建的局部结果：edges的编号是单词的首次出现顺序时，节点编号与逐对加边相同.
+   * edges中的单词必须已经是小写.
+   */
+  void addEdges(GraphBuilder edges) {
+    GraphBuilder b = builder();
+    snapshot = null;
+    for (int id = 0; id < edges.nodeCount(); id++) {
+      b.addWord(edges.word(id));
     }
-    Integer count = neighbors.get(destination);
-    if (count == null) {
-      neighbors.put(destination, 1);
-    } else {
-      neighbors.put(destination, count + 1);
+    List<GraphChange.EdgeChange> changes = listeners.isEmpty() ? null : new ArrayList<>();
+    edges.forEachEdge((source, target, count) -> {
+      String word1 = edges.word(source);
+      String word2 = edges.word(target);
+      int oldWeight = b.addEdge(word1, word2, count);
+      if (changes != null) {
+        changes.add(new GraphChange.EdgeChange(word1, word2, oldWeight, oldWeight + count));
+      }
+    });
+    if (changes != null && !changes.isEmpty()) {
+      fireGraphChanged(changes, false, false);
     }
   }
+
+  /**
+   * 把边的权重增加count，返回原来的权重（边不存在时为0）.
+   */
+  private int addEdgeWeight(String source, String destination, int count) {
+    GraphBuilder b = builder();
+    snapshot = null;
+    return b.addEdge(source, destination, count);
+  }
   /**
   * 根据单词列表生成有向图.
   */
 
   public void createGraph(List<String> words) {
+    long begin = GraphMetrics.begin();
+    // 所有边的变化合并成一个事件
+    List<GraphChange.EdgeChange> changes = listeners.isEmpty() ? null : new ArrayList<>();
     for (int i = 0; i < words.size() - 1; i++) {
-      String word1 = words.get(i);
-      String word2 = words.get(i + 1);
-      addEdge(word1, word2);
+      String word1 = words.get(i).toLowerCase();
+      String word2 = words.get(i + 1).toLowerCase();
+      int oldWeight = addEdgeWeight(word1, word2, 1);
+      if (changes != null) {
+        changes.add(new GraphChange.EdgeChange(word1, word2, oldWeight, oldWeight + 1));
+      }
+    }
+    GraphMetrics.end(GraphMetrics.Operation.EDGE_INSERT, begin, Math.max(0, words.size() - 1));
+    if (changes != null) {
+      fireGraphChanged(changes, false, false);
+    }
+  }
+
+  /**
+   * 向语料末尾追加文本：按readWordsFromFile的规则分词，
+   * 更新单词序列和边权重（包括原来最后一个单词到新文本第一个单词的边），并发出一个修改事件.
+   *
+   * @param text 新文本
+   */
+  public void appendText(String text) {
+    List<String> newWords = new ArrayList<>();
+    CorpusTokenizer tokenizer = new CorpusTokenizer();
+    tokenizer.feed(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), newWords::add);
+    tokenizer.finish(newWords::add);
+    appendWords(newWords);
+  }
+
+  /**
+   * 向语料末尾追加已经分好的单词，边和单词序列保持一致.
+   *
+   * @param newWords 新单词
+   */
+  public void appendWords(List<String> newWords) {
+    long begin = GraphMetrics.begin();
+    if (!(words instanceof TokenSequence)) {
+      // 从快照载入的单词序列是只读的
+      words = TokenSequence.of(words());
+    }
+    List<GraphChange.EdgeChange> changes = listeners.isEmpty() ? null : new ArrayList<>();
+    String previous = words.isEmpty() ? null : words.get(words.size() - 1).toLowerCase();
+    long inserted = 0;
+    for (String word : newWords) {
+      String current = word.toLowerCase();
+      if (previous != null) {
+        int oldWeight = addEdgeWeight(previous, current, 1);
+        inserted++;
+        if (changes != null) {
+          changes.add(new GraphChange.EdgeChange(previous, current, oldWeight, oldWeight + 1));
+        }
+      }
+      words.add(word);
+      previous = current;
+    }
+    GraphMetrics.end(GraphMetrics.Operation.EDGE_INSERT, begin, inserted);
+    if (changes != null) {
+      fireGraphChanged(changes, false, true);
+    }
+  }
+
+  /**
+   * 注册图修改事件的监听器.
+   */
+  public void addGraphListener(GraphListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeGraphListener(GraphListener listener) {
+    listeners.remove(listener);
+  }
+
+  private void fireGraphChanged(List<GraphChange.EdgeChange> changes, boolean replaced,
+                                boolean wordsChanged) {
+    if (listeners.isEmpty()) {
+      return;
+    }
+    GraphChange change = new GraphChange(changes, replaced, wordsChanged);
+    for (GraphListener listener : listeners) {
+      listener.graphChanged(change);
     }
   }
 
+  /**
+   * 把当前的图编译成不可变的CSR快照，只读算法都在快照上运行.
+   * 快照会被缓存，直到addEdge或setWordsMap修改了图.
+   *
+   * @return 当前图的快照
+   */
+  public GraphSnapshot freeze() {
+    GraphSnapshot s = snapshot;
+    if (s == null) {
+      s = builder.toSnapshot();
+      snapshot = s;
+    }
+    return s;
+  }
+
   /**
    * 获取节点的邻居及其权重.
    */
   public Map<String, Integer> getNeighbors(String node) {
-    node = node.toLowerCase();
-    if (this.wordsMap.containsKey(node)) {
-      return this.wordsMap.get(node);
-    } else {
-      return new HashMap<>();
-    }
+    return freeze().neighbors(node.toLowerCase());
   }
   /**
   * 打印图的信息.
@@ -145,19 +317,9 @@ public class Graph {
       Path baseDir = Paths.get("").toAbsolutePath().normalize();
       Path filePath = baseDir.resolve(fileName); // 使用基础目录来创建完整路径
 
-      try (BufferedWriter writer = Files.newBufferedWriter(filePath)) {
-        writer.write("digraph G {\n");
-        for (Map.Entry<String, Map<String, Integer>> entry : wordsMap.entrySet()) {
-          String node = entry.getKey();
-          Map<String, Integer> neighbors = entry.getValue();
-          for (Map.Entry<String, Integer> neighborEntry : neighbors.entrySet()) {
-            String neighbor = neighborEntry.getKey();
-            int weight = neighborEntry.getValue();
-            writer.write("    \"" + node + "\" -> \"" + neighbor
-                    + "\" [label=\"" + weight + "\"];\n");
-          }
-        }
-        writer.write("}\n");
+      try {
+        // 边直接流式写入缓冲区
+        GraphExporter.writeDot(GraphView.of(freeze()), filePath);
         System.out.println("DOT file has been generated: " + fileName);
       } catch (IOException e) {
         System.err.println("Error writing DOT file: " + e.getMessage());
@@ -194,17 +356,38 @@ public class Graph {
 
   /**
   * 调用Graphviz来生成图像的方法.
+  * 找不到Graphviz时在进程内绘制当前的图（只画权重最大的边），这时不读取dotFilePath.
+  *
+  * @param dotFilePath 交给Graphviz的DOT文件
+  * @param outputFilePath 输出图像，扩展名为.svg时输出SVG，否则输出PNG
   */
 
   public void renderGraph(String dotFilePath, String outputFilePath) {
+    String format = outputFilePath.toLowerCase(Locale.ROOT).endsWith(".svg") ? "svg" : "png";
+    Path dot = GraphRenderer.findDot();
+    if (dot == null) {
+      // 没有Graphviz时在进程内布局并绘制，大图只画权重最大的边
+      try {
+        GraphRenderer.render(GraphView.of(freeze()).heaviest(MAX_RENDER_EDGES),
+                Paths.get(outputFilePath));
+      } catch (IOException e) {
+        System.err.println("Error rendering graph: " + e.getMessage());
+      }
+      return;
+    }
     try {
-      String dotCommand = "C:\\Program Files\\Graphviz\\bin\\dot";
-      ProcessBuilder pb = new ProcessBuilder(dotCommand, "-Tpng",
+      ProcessBuilder pb = new ProcessBuilder(dot.toString(), "-T" + format,
               dotFilePath, "-o", outputFilePath);
       pb.inheritIO();
       Process process = pb.start();
-      process.waitFor();
-    } catch (IOException | InterruptedException e) {
+      try {
+        process.waitFor();
+      } catch (InterruptedException e) {
+        // 被取消时结束dot进程并保留中断状态
+        process.destroy();
+        Thread.currentThread().interrupt();
+      }
+    } catch (IOException e) {
       System.err.println("Error rendering graph: " + e.getMessage());
     }
   }
@@ -216,18 +399,33 @@ public class Graph {
     word1 = word1.toLowerCase();
     word2 = word2.toLowerCase();
 
-    // 检查输入的单词是否在图中出现
-    if (!this.words.contains(word1) || !this.words.contains(word2)) {
-      return "No word1 or word2 in the graph!";
+    // 用桥接词索引求 out(word1) ∩ in(word2)，单词不在图中时得到null
+    return bridgeWordsMessage(word1, word2, freeze().bridgeIndex().bridgeWords(word1, word2));
+  }
+
+  /**
+   * 批量查询桥接词，并行执行，结果顺序与输入一致.
+   *
+   * @param pairs 每个元素是{word1, word2}
+   * @return 每对单词的查询结果，格式与queryBridgeWords相同
+   */
+  public List<String> queryBridgeWords(List<String[]> pairs) {
+    List<String[]> normalized = new ArrayList<>(pairs.size());
+    for (String[] pair : pairs) {
+      normalized.add(new String[] {pair[0].toLowerCase(), pair[1].toLowerCase()});
     }
-    List<String> bridgeWords = new ArrayList<>();
-    Map<String, Integer> neighbors1 = this.getNeighbors(word1);
-    // 在图中查找桥接词
-    for (String neighborWord : neighbors1.keySet()) {
-      Map<String, Integer> neighborsBridgeWord = this.getNeighbors(neighborWord);
-      if (neighborsBridgeWord.containsKey(word2)) {
-        bridgeWords.add(neighborWord);
-      }
+    List<List<String>> results = freeze().bridgeIndex().bridgeWords(normalized);
+    List<String> messages = new ArrayList<>(results.size());
+    for (int i = 0; i < results.size(); i++) {
+      String[] pair = normalized.get(i);
+      messages.add(bridgeWordsMessage(pair[0], pair[1], results.get(i)));
+    }
+    return messages;
+  }
+
+  static String bridgeWordsMessage(String word1, String word2, List<String> bridgeWords) {
+    if (bridgeWords == null) {
+      return "No word1 or word2 in the graph!";
     }
     // 根据查找结果返回相应的消息
     if (bridgeWords.isEmpty()) {
@@ -242,6 +440,7 @@ public class Graph {
   */
 
   public String generateNewText(String inputText) {
+    long begin = GraphMetrics.begin();
     String[] newWords = inputText.split("\\s+");
     StringBuilder newText = new StringBuilder();
     for (int i = 0; i < newWords.length - 1; i++) {
@@ -249,29 +448,44 @@ public class Graph {
       String word2 = newWords[i + 1];
       newText.append(word1).append(" "); // 将单词1添加到新文本中
       // 查找桥接词
-      String bridgeWords = queryBridgeWords(word1, word2);
-      if (bridgeWords.contains("are")) {
-        // 提取 'are: ' 后面的所有文本直到句点前
-        String bridgeWordsPart = bridgeWords.substring(bridgeWords.indexOf("are: ") + 5,
-                bridgeWords.length() - 1);
-        // 分割提取的部分来获取单独的桥接词
-        String[] bridgeWord = bridgeWordsPart.split(", ");
-        String wordsWithBrackets = Arrays.toString(bridgeWord);
-        // 去除首尾的方括号
-        String trimmedWords = wordsWithBrackets.substring(1, wordsWithBrackets.length() - 1);
-
-        // 使用逗号分割字符串为数组
-        String[] wordsArray = trimmedWords.split(", ");
-
+      String[] bridgeWords = findBridgeWords(word1, word2);
+      if (bridgeWords.length > 0) {
         // 随机选择一个元素
-        String selectedWord = wordsArray[random.nextInt(wordsArray.length)]; // 随机选取一个元素
-
+        String selectedWord = bridgeWords[random.nextInt(bridgeWords.length)];
         newText.append(selectedWord).append(" "); // 将桥接词添加到新文本中
       }
     }
     newText.append(newWords[newWords.length - 1]); // 将最后一个单词添加到新文本中
+    GraphMetrics.end(GraphMetrics.Operation.TEXT_GENERATION, begin, newWords.length);
     return newText.toString();
   }
+
+  /**
+   * 流式生成新文本：从in读入，插入桥接词后写到out，内存占用与文本长度无关.
+   * 单词以空白符分隔，输出中以单个空格分隔.
+   */
+  public void generateNewText(Reader in, Writer out) throws IOException {
+    generateNewText(in, out, 1);
+  }
+
+  /**
+   * 流式生成新文本，文本按分段由parallelism个线程并行处理，按原顺序写出.
+   */
+  public void generateNewText(Reader in, Writer out, int parallelism) throws IOException {
+    new BridgeTextGenerator(freeze()).generate(in, out, random.nextLong(), parallelism);
+  }
+
+  /**
+   * 查询桥接词.
+   *
+   * @return 按编号排序的桥接词，单词不在图中或没有桥接词时为空数组
+   */
+  public String[] findBridgeWords(String word1, String word2) {
+    List<String> bridgeWords = freeze().bridgeIndex()
+            .bridgeWords(word1.toLowerCase(), word2.toLowerCase());
+    return bridgeWords == null ? new String[0] : bridgeWords.toArray(new String[0]);
+  }
+
   /**
   * 最短路径.
   */
@@ -279,155 +493,222 @@ public class Graph {
   public List<List<String>> calcAllShortestPaths(String word1, String word2) {
     word1 = word1.toLowerCase();
     word2 = word2.toLowerCase();
-    Set<String> allNodes = getAllNodes();
-    if (wordsMap.isEmpty()) {
-      List<List<String>> result = new ArrayList<>();
-      result.add(Arrays.asList("图不存在"));
-      return result;  // 返回包含错误消息的列表
-    }
-    // 检查源节点和目标节点是否存在于图中
-    if (!allNodes.contains(word1)) {
-      List<List<String>> result = new ArrayList<>();
-      result.add(Arrays.asList("word1节点不存在"));
-      return result;  // 返回包含错误消息的列表
-    }
-    if (!allNodes.contains(word2)) {
-      List<List<String>> result = new ArrayList<>();
-      result.add(Arrays.asList("word2节点不存在"));
-      return result;  // 返回包含错误消息的列表
+    GraphSnapshot g = freeze();
+    List<List<String>> error = checkPathQuery(g, word1, word2);
+    if (error != null) {
+      return error;  // 返回包含错误消息的列表
     }
-    // 初始化距离和前驱节点
-    Map<String, Integer> distance = new HashMap<>();  // 存储每个节点的最短距离
-    Map<String, List<String>> predecessors = new HashMap<>();  // 存储每个节点的前驱节点列表
-    for (String node : this.words) {
-      distance.put(node, Integer.MAX_VALUE);  // 初始化所有节点的距离为无限大
-      predecessors.put(node, new ArrayList<>());  // 初始化前驱节点列表为空
-    }
-    distance.put(word1, 0);  // 起点的距离设为0
-    // 使用一个集合来模拟优先队列
-    Set<String> unvisited = new HashSet<>(this.words);
-    // Dijkstra算法
-    while (!unvisited.isEmpty()) {
-      // 找到未访问节点中距离最小的节点
-      String u = null;
-      int minDistance = Integer.MAX_VALUE;
-      for (String node : unvisited) {
-        int dist = distance.get(node);
-        if (dist < minDistance) {
-          minDistance = dist;
-          u = node;
-        }
-      }
-      if (u == null) {
-        break; // 如果找不到这样的节点，退出循环
-      }
-      unvisited.remove(u);  // 标记节点为已访问
-      Map<String, Integer> neighbors = this.wordsMap.get(u);
-      if (neighbors != null) {
-        for (Map.Entry<String, Integer> entry : neighbors.entrySet()) {
-          String v = entry.getKey();
-          int weight = entry.getValue();
-          int newdistance = distance.get(u) + weight;
-          if (newdistance < distance.get(v)) {
-            distance.put(v, newdistance);
-            predecessors.get(v).clear();
-            predecessors.get(v).add(u);
-          } else if (newdistance == distance.get(v)) {
-            predecessors.get(v).add(u);  // 添加额外的前驱节点
-          }
-        }
+    // 热点起点使用增量维护的最短路径树，其他起点用双向Dijkstra只搜索两个单词附近的节点
+    ShortestPaths paths = shortestPaths(g, word1, word2);
+    List<List<String>> allPaths = formatPaths(paths);
+    int length = paths.distance();
+    if (length != ShortestPathTree.UNREACHABLE) {
+      for (List<String> p : allPaths) {
+        System.out.println(String.join(" -> ", p) + " (Length: " + length + ")");
       }
     }
+    return allPaths;
+  }
 
-    // 构建所有最短路径
-    List<List<String>> allPaths = new ArrayList<>();  // 存储所有最短路径
-    List<Integer> pathLengths = new ArrayList<>();  // 存储路径长度
-
-    List<String> path = new ArrayList<>();  // 当前路径
-    List<Iterator<String>> iterators = new ArrayList<>();  // 存储每个节点的前驱节点的迭代器
-
-    path.add(word2);  // 从终点开始构建路径
-    iterators.add(predecessors.get(word2).iterator());  // 初始化迭代器
-
-    while (!path.isEmpty()) {
-      if (path.get(path.size() - 1).equals(word1)) {  // 找到一条完整路径
-        List<String> fullPath = new ArrayList<>(path);
-        Collections.reverse(fullPath);  // 反转路径
-        int length = calculatePathLength(fullPath, this.wordsMap);  // 计算路径长度
-        allPaths.add(fullPath);  // 添加到所有路径列表中
-        pathLengths.add(length);  // 存储路径长度
-        path.remove(path.size() - 1);  // 回溯
-        iterators.remove(iterators.size() - 1);  // 移除对应的迭代器
-      } else {
-        Iterator<String> it = iterators.get(iterators.size() - 1);
-        if (it.hasNext()) {  // 还有前驱节点可以遍历
-          String predecessor = it.next();
-          path.add(predecessor);  // 添加前驱节点到路径中
-          iterators.add(predecessors.get(predecessor).iterator());  // 为前驱节点添加新的迭代器
-        } else {  // 当前节点的前驱节点遍历完毕
-          path.remove(path.size() - 1);  // 回溯
-          iterators.remove(iterators.size() - 1);  // 移除对应的迭代器
-        }
-      }
+  /**
+   * 检查图和两个单词是否存在，有问题时返回包含错误消息的列表，否则返回null.
+   */
+  static List<List<String>> checkPathQuery(GraphSnapshot g, String word1, String word2) {
+    String message = null;
+    if (g.nodeCount() == 0) {
+      message = "图不存在";
+    } else if (g.id(word1) < 0) {
+      message = "word1节点不存在";
+    } else if (g.id(word2) < 0) {
+      message = "word2节点不存在";
     }
-    if (!allPaths.isEmpty()) {
-      for (int i = 0; i < allPaths.size(); i++) {
-        List<String> p = allPaths.get(i);
-        int length = pathLengths.get(i);
-        allPaths.get(i).add("路径长度为：" + length);
-        System.out.println(String.join(" -> ", p) + " (Length: " + length + ")");
-      }
-    } else {
+    if (message == null) {
+      return null;
+    }
+    List<List<String>> result = new ArrayList<>();
+    result.add(Arrays.asList(message));
+    return result;
+  }
+
+  /**
+   * 把最短路径树中到target的路径转换成对外的结果格式.
+   */
+  static List<List<String>> formatPaths(ShortestPathTree tree, String target) {
+    return formatPaths(tree.shortestPaths(target));
+  }
+
+  /**
+   * 把所有最短路径转换成对外的结果格式，paths为null时视为没有路径.
+   */
+  static List<List<String>> formatPaths(ShortestPaths paths) {
+    if (paths == null || !paths.isReachable()) {
       List<List<String>> result = new ArrayList<>();
       result.add(Arrays.asList("没有找到路径"));
       return result;  // 返回包含错误消息的列表
     }
+    long begin = GraphMetrics.begin();
+    List<List<String>> allPaths = new ArrayList<>();
+    String length = "路径长度为：" + paths.distance();  // 所有最短路径长度相同
+    for (List<String> p : paths) {
+      p.add(length);
+      allPaths.add(p);
+    }
+    GraphMetrics.end(GraphMetrics.Operation.PATH_ENUMERATION, begin, allPaths.size());
     return allPaths;
   }
 
-  private int calculatePathLength(List<String> path, Map<String, Map<String, Integer>> wordsMap) {
-    int length = 0;
-    for (int i = 0; i < path.size() - 1; i++) {
-      String currentNode = path.get(i);
-      String nextNode = path.get(i + 1);
-      Map<String, Integer> neighbors = wordsMap.get(currentNode);
-      length += neighbors.get(nextNode);  // 加上当前边的权重
+  /**
+   * 单源最短路径：只运行一次Dijkstra，保留前驱DAG，到各节点的路径按需还原.
+   *
+   * @param word1 起点
+   * @return 最短路径树，起点不在图中时返回null
+   */
+  public ShortestPathTree calcShortestPathTree(String word1) {
+    word1 = word1.toLowerCase();
+    GraphSnapshot g = freeze();
+    int source = g.id(word1);
+    return source < 0 ? null : shortestPathTree(g, source);
+  }
+
+  /**
+   * word1到word2的所有最短路径，距离只计算一次，路径可以按需迭代、限量获取或只计数.
+   *
+   * @return 任一单词不在图中时返回null
+   */
+  public ShortestPaths findShortestPaths(String word1, String word2) {
+    word1 = word1.toLowerCase();
+    word2 = word2.toLowerCase();
+    GraphSnapshot g = freeze();
+    return g.id(word1) < 0 || g.id(word2) < 0 ? null : shortestPaths(g, word1, word2);
+  }
+
+  /**
+   * word1是否有路径到达word2，单词不在图中时返回false. 使用快照的可达性索引，
+   * 大多数不可达的点对在O(1)时间内得到结果.
+   */
+  public boolean isReachable(String word1, String word2) {
+    return freeze().reachability().reachable(word1, word2);
+  }
+
+  /**
+   * 两个单词都在图中时的点对点查询.
+   */
+  private ShortestPaths shortestPaths(GraphSnapshot g, String word1, String word2) {
+    DynamicShortestPaths hot = hotSources.get(word1);
+    if (hot != null) {
+      return hot.tree(g).shortestPaths(word2);
+    }
+    return g.pointToPoint().bidirectional(g.id(word1), g.id(word2));
+  }
+
+  private ShortestPathTree shortestPathTree(GraphSnapshot g, int source) {
+    DynamicShortestPaths hot = hotSources.get(g.word(source));
+    return hot != null ? hot.tree(g) : g.shortestPathTree(source);
+  }
+
+  /**
+   * 把word作为热点起点：保留其最短路径结果，图被追加修改后增量修复而不是重新计算.
+   *
+   * @param word 起点
+   * @return 起点不在图中时返回false
+   */
+  public boolean trackShortestPaths(String word) {
+    word = word.toLowerCase();
+    if (hotSources.containsKey(word)) {
+      return true;
+    }
+    ShortestPathTree tree = calcShortestPathTree(word);
+    if (tree == null) {
+      return false;
+    }
+    DynamicShortestPaths hot = new DynamicShortestPaths(tree);
+    hotSources.put(word, hot);
+    addGraphListener(hot);
+    return true;
+  }
+
+  /**
+   * 取消热点起点.
+   */
+  public void untrackShortestPaths(String word) {
+    DynamicShortestPaths hot = hotSources.remove(word.toLowerCase());
+    if (hot != null) {
+      removeGraphListener(hot);
     }
-    return length;
   }
+
   /**
   * 计算所有最短路径.
   */
 
   public Map<String, List<List<String>>> calcAllShortestPathsToAll(String word1) {
-    word1 = word1.toLowerCase();
-    Map<String, List<List<String>>> allPathsToAll = new HashMap<>();
-    Set<String> allNodes = getAllNodes();
+    ShortestPathTree tree = calcShortestPathTree(word1);
     // 检查源节点是否存在于图中
-    if (!allNodes.contains(word1)) {
-      return allPathsToAll;  // 返回空的路径集合
-    }
-    // 对每一个节点（除了自己），计算从word1到该节点的最短路径
-    for (String target : allNodes) {
-      if (!target.equals(word1)) {
-        List<List<String>> paths = calcAllShortestPaths(word1, target);
-        allPathsToAll.put(target, paths);
-      }
+    if (tree == null) {
+      return new HashMap<>();  // 返回空的路径集合
     }
+    return new LazyPathMap(tree);
+  }
 
-    return allPathsToAll;
+  /**
+   * 以单源最短路径树为后端的只读Map，访问某个目标时才还原其路径.
+   */
+  private static final class LazyPathMap extends AbstractMap<String, List<List<String>>> {
+    private final ShortestPathTree tree;
+
+    LazyPathMap(ShortestPathTree tree) {
+      this.tree = tree;
+    }
+
+    @Override
+    public List<List<String>> get(Object key) {
+      return containsKey(key) ? formatPaths(tree, (String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && !key.equals(tree.source()) && tree.contains((String) key);
+    }
+
+    @Override
+    public int size() {
+      return tree.nodes().size() - 1;
+    }
+
+    @Override
+    public Set<Entry<String, List<List<String>>>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public Iterator<Entry<String, List<List<String>>>> iterator() {
+          Iterator<String> targets = tree.nodes().stream()
+                  .filter(node -> !node.equals(tree.source())).iterator();
+          return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+              return targets.hasNext();
+            }
+
+            @Override
+            public Entry<String, List<List<String>>> next() {
+              String target = targets.next();
+              return new SimpleImmutableEntry<>(target, formatPaths(tree, target));
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return LazyPathMap.this.size();
+        }
+      };
+    }
   }
   /**
   * 获取所有节点.
   */
 
   public Set<String> getAllNodes() {
-    Set<String> allNodes = new HashSet<>(this.wordsMap.keySet());  // 先添加所有的键（源节点）
-
-    // 现在添加所有的值（目标节点），确保没有遗漏
-    for (Map<String, Integer> neighbors : this.wordsMap.values()) {
-      allNodes.addAll(neighbors.keySet());
-    }
+    Set<String> allNodes = new HashSet<>(freeze().nodes());  // 快照中包含源节点和目标节点
     return allNodes;
   }
   /**
@@ -435,67 +716,48 @@ public class Graph {
   */
 
   public String randomWalk() {
-    if (!walking) {
-      List<String> nodes = new ArrayList<>(wordsMap.keySet());
-      if (nodes.isEmpty()) {
-        return "图中没有节点";
-      }
-      currentNode = nodes.get(random.nextInt(nodes.size()));
-      path.clear();
-      path.add(currentNode);
-      visitedEdges.clear();
-      walking = true;
-    }
-
-    Map<String, Integer> neighbors = getNeighbors(currentNode);
-    if (neighbors.isEmpty()) {
-      walking = false;
-      writePathToFile();
-      return "游走结束,不存在边";
-    }
-
-    List<String> availableNeighbors = new ArrayList<>(neighbors.keySet());
-    String nextNode = availableNeighbors.get(random.nextInt(availableNeighbors.size()));
-    String edge = currentNode + "->" + nextNode;
-
-    if (visitedEdges.contains(edge)) {
-      walking = false;
-      path.add(nextNode);
-      writePathToFile();
-      String end = " -> " + nextNode;
-      return end + "游走结束，发现重复边";
-    }
-
-    visitedEdges.add(edge);
-    path.add(nextNode);
-    currentNode = nextNode;
-    return String.join(" -> ", path);
+    return walkSession().step();
   }
 
 
-  private void writePathToFile() {
-    try (FileWriter writer = new FileWriter("random_walk.txt", StandardCharsets.UTF_8, false)) {
-      for (int i = 0; i < path.size(); i++) {
-        writer.write(path.get(i));
-        if (i < path.size() - 1) {
-          writer.write(" -> "); // 添加节点之间的箭头
-        }
+  private void writePathToFile(List<String> path) {
+    try {
+      if (walkSink != null && !walkSink.isOpen()) {
+        // 写盘时被中断会关闭通道，丢弃失效的输出端，未写出的内容随之丢失
+        walkSink = null;
       }
-      writer.write("\n"); // 换行符表示路径结束
-      System.out.println("路径已写入random_walk.txt");
-    } catch (IOException e) {
+      if (walkSink == null) {
+        walkSink = new FileWalkSink(Paths.get(WALK_FILE), freeze(),
+                FileWalkSink.Format.TEXT, false);
+      }
+      // 游走可能跨过了图的修改，路径中的单词不一定在当前快照中，按单词写入
+      walkSink.acceptWords(path);
+      walkSink.flush();
+      System.out.println("路径已写入" + WALK_FILE);
+    } catch (IOException | UncheckedIOException e) {
       System.err.println("无法写入文件: " + e.getMessage());
     }
+  }
 
+  /**
+   * 关闭随机游走的输出文件.
+   */
+  public void closeWalkSink() {
+    if (walkSink != null) {
+      try {
+        walkSink.close();
+      } catch (IOException e) {
+        System.err.println("无法写入文件: " + e.getMessage());
+      }
+      walkSink = null;
+    }
   }
+
   /**
   * 重置随机游走状态.
   */
 
   public void resetWalk() {
-    walking = false;
-    currentNode = null;
-    path.clear();
-    visitedEdges.clear();
+    walkSession().reset();
   }
 }
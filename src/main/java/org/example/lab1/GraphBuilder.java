@@ -0,0 +1,171 @@
+package org.example.lab1;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 可变的有向图构建器. 单词经字典映射为稠密编号，边的计数保存在以编号对为键的基本类型散列表中，
+ * 已出现过的单词和边再次加入时不分配任何对象.
+ * 单词按原样保存，大小写转换由调用方负责. 需要只读算法或Map形式的邻接表时用toSnapshot转换.
+ *
+ * <p>编号只增不改，新单词排在后面. 上一次toSnapshot之后修改过的边会被记录下来，
+ * 修改不多时下一次toSnapshot在上一个快照的数组上合并这些边，而不是重新编译整个图.
+ */
+
+public final class GraphBuilder {
+  private final WordDictionary dictionary;
+  private final EdgeCountTable edges;
+  private GraphSnapshot base; // 上一次toSnapshot的结果，为null时下一次完整编译
+  private long[] changed = new long[16]; // base之后修改过的边(源 << 32 | 目标)，可能重复
+  private int changedCount;
+
+  public GraphBuilder() {
+    this(16, 16);
+  }
+
+  private GraphBuilder(int expectedWords, int expectedEdges) {
+    dictionary = new WordDictionary(expectedWords);
+    edges = new EdgeCountTable(expectedEdges);
+  }
+
+  /**
+   * 内容与快照相同的构建器，节点编号保持不变.
+   */
+  static GraphBuilder of(GraphSnapshot snapshot) {
+    GraphBuilder builder = new GraphBuilder(snapshot.nodeCount(), snapshot.edgeCount());
+    for (int u = 0; u < snapshot.nodeCount(); u++) {
+      builder.dictionary.add(snapshot.word(u));
+    }
+    for (int u = 0; u < snapshot.nodeCount(); u++) {
+      for (int i = snapshot.offsets[u]; i < snapshot.offsets[u + 1]; i++) {
+        builder.edges.add(u, snapshot.targets[i], snapshot.weights[i]);
+      }
+    }
+    builder.base = snapshot;
+    return builder;
+  }
+
+  /**
+   * 由邻接表构建，没有出边的源节点也会成为节点.
+   */
+  public static GraphBuilder of(Map<String, Map<String, Integer>> wordsMap) {
+    GraphBuilder builder = new GraphBuilder();
+    for (Map.Entry<String, Map<String, Integer>> entry : wordsMap.entrySet()) {
+      int source = builder.dictionary.add(entry.getKey());
+      for (Map.Entry<String, Integer> edge : entry.getValue().entrySet()) {
+        builder.edges.add(source, builder.dictionary.add(edge.getKey()), edge.getValue());
+      }
+    }
+    return builder;
+  }
+
+  /**
+   * 把边source->destination的权重增加count，返回原来的权重（边不存在时为0）.
+   */
+  public int addEdge(String source, String destination, int count) {
+    int u = dictionary.add(source);
+    int v = dictionary.add(destination);
+    if (base != null) {
+      recordChange(u, v);
+    }
+    return edges.add(u, v, count);
+  }
+
+  /**
+   * 单词的编号，不存在时作为没有边的节点加入.
+   */
+  int addWord(String word) {
+    return dictionary.add(word);
+  }
+
+  private void recordChange(int u, int v) {
+    if (changedCount == changed.length) {
+      if (changedCount >= Math.max(64, edges.size() / 4)) {
+        // 修改太多时合并不比完整编译快，放弃记录
+        base = null;
+        changedCount = 0;
+        return;
+      }
+      changed = Arrays.copyOf(changed, changedCount * 2);
+    }
+    changed[changedCount++] = (long) u << 32 | v;
+  }
+
+  /**
+   * 边的权重，不存在时返回0.
+   */
+  public int weight(String source, String destination) {
+    int u = dictionary.id(source);
+    int v = dictionary.id(destination);
+    return u < 0 || v < 0 ? 0 : edges.get(u, v);
+  }
+
+  public int nodeCount() {
+    return dictionary.size();
+  }
+
+  public int edgeCount() {
+    return edges.size();
+  }
+
+  String word(int id) {
+    return dictionary.word(id);
+  }
+
+  void forEachEdge(EdgeCountTable.Visitor visitor) {
+    edges.forEach(visitor);
+  }
+
+  /**
+   * 编译成CSR快照，节点编号即字典中的编号. 之后对构建器的修改不影响快照.
+   */
+  public GraphSnapshot toSnapshot() {
+    GraphSnapshot snapshot;
+    if (base != null) {
+      Arrays.sort(changed, 0, changedCount);
+      int count = 0;
+      for (int i = 0; i < changedCount; i++) {
+        if (count == 0 || changed[i] != changed[count - 1]) {
+          changed[count++] = changed[i];
+        }
+      }
+      snapshot = GraphSnapshot.withChanges(base, dictionary.copy(), changed, count, edges::get);
+    } else {
+      snapshot = compile();
+    }
+    base = snapshot;
+    changedCount = 0;
+    return snapshot;
+  }
+
+  private GraphSnapshot compile() {
+    int n = dictionary.size();
+    int[] offsets = new int[n + 1];
+    edges.forEach((source, target, count) -> offsets[source + 1]++);
+    for (int u = 0; u < n; u++) {
+      offsets[u + 1] += offsets[u];
+    }
+    // 用 (目标编号 << 32 | 权重) 排序，使每一行按目标编号有序
+    long[] rows = new long[edges.size()];
+    int[] fill = Arrays.copyOf(offsets, n);
+    edges.forEach((source, target, count) ->
+            rows[fill[source]++] = (long) target << 32 | (count & 0xFFFFFFFFL));
+    int[] targets = new int[rows.length];
+    int[] weights = new int[rows.length];
+    for (int u = 0; u < n; u++) {
+      Arrays.sort(rows, offsets[u], offsets[u + 1]);
+    }
+    for (int i = 0; i < rows.length; i++) {
+      targets[i] = (int) (rows[i] >>> 32);
+      weights[i] = (int) rows[i];
+    }
+    return GraphSnapshot.of(dictionary.copy(), offsets, targets, weights);
+  }
+
+  /**
+   * Map形式的只读邻接表，见GraphSnapshot.asMap.
+   */
+  public Map<String, Map<String, Integer>> toMap() {
+    return toSnapshot().asMap();
+  }
+}
@@ -0,0 +1,19 @@
+package org.example.lab1;
+
+import java.util.List;
+
+/**
+ * 图的一次修改.
+ *
+ * @param edges 权重发生变化的边，按修改顺序排列
+ * @param replaced 整个图被setWordsMap替换，edges为空
+ * @param wordsChanged 单词序列发生了变化
+ */
+
+public record GraphChange(List<EdgeChange> edges, boolean replaced, boolean wordsChanged) {
+  /**
+   * 一条边的权重变化，oldWeight为0表示新增的边.
+   */
+  public record EdgeChange(String source, String target, int oldWeight, int newWeight) {
+  }
+}
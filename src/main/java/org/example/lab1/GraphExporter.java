@@ -0,0 +1,150 @@
+package org.example.lab1;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 把图视图流式写成DOT、GraphML或边列表，边直接写入大缓冲区，不拼接中间字符串.
+ */
+
+public final class GraphExporter {
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private GraphExporter() {
+  }
+
+  /**
+   * 写出DOT格式，每条边一行：{@code "a" -> "b" [label="w"];}.
+   */
+  public static void writeDot(GraphView view, Path file) throws IOException {
+    long begin = GraphMetrics.begin();
+    try (Writer out = open(file)) {
+      writeDot(view, out);
+    }
+    recordExport(begin, file);
+  }
+
+  public static void writeDot(GraphView view, Writer out) throws IOException {
+    GraphSnapshot g = view.graph();
+    out.write("digraph G {\n");
+    // 没有边的节点单独列出
+    for (int u : view.isolatedNodes()) {
+      out.write("    ");
+      writeDotId(out, g.word(u));
+      out.write(";\n");
+    }
+    view.forEachEdge((source, target, weight) -> {
+      out.write("    ");
+      writeDotId(out, g.word(source));
+      out.write(" -> ");
+      writeDotId(out, g.word(target));
+      out.write(" [label=\"");
+      out.write(Integer.toString(weight));
+      out.write("\"];\n");
+    });
+    out.write("}\n");
+  }
+
+  /**
+   * 写出GraphML格式，边权重保存在键为weight的data中.
+   */
+  public static void writeGraphMl(GraphView view, Path file) throws IOException {
+    long begin = GraphMetrics.begin();
+    try (Writer out = open(file)) {
+      writeGraphMl(view, out);
+    }
+    recordExport(begin, file);
+  }
+
+  public static void writeGraphMl(GraphView view, Writer out) throws IOException {
+    GraphSnapshot g = view.graph();
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    out.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+    out.write("  <key id=\"weight\" for=\"edge\" attr.name=\"weight\" attr.type=\"int\"/>\n");
+    out.write("  <graph id=\"G\" edgedefault=\"directed\">\n");
+    for (int u : view.nodes()) {
+      out.write("    <node id=\"");
+      writeXml(out, g.word(u));
+      out.write("\"/>\n");
+    }
+    view.forEachEdge((source, target, weight) -> {
+      out.write("    <edge source=\"");
+      writeXml(out, g.word(source));
+      out.write("\" target=\"");
+      writeXml(out, g.word(target));
+      out.write("\"><data key=\"weight\">");
+      out.write(Integer.toString(weight));
+      out.write("</data></edge>\n");
+    });
+    out.write("  </graph>\n");
+    out.write("</graphml>\n");
+  }
+
+  /**
+   * 写出边列表，每行"源\t目标\t权重".
+   */
+  public static void writeEdgeList(GraphView view, Path file) throws IOException {
+    long begin = GraphMetrics.begin();
+    try (Writer out = open(file)) {
+      writeEdgeList(view, out);
+    }
+    recordExport(begin, file);
+  }
+
+  public static void writeEdgeList(GraphView view, Writer out) throws IOException {
+    GraphSnapshot g = view.graph();
+    view.forEachEdge((source, target, weight) -> {
+      out.write(g.word(source));
+      out.write('\t');
+      out.write(g.word(target));
+      out.write('\t');
+      out.write(Integer.toString(weight));
+      out.write('\n');
+    });
+  }
+
+  static Writer open(Path file) throws IOException {
+    return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file),
+            StandardCharsets.UTF_8), BUFFER_SIZE);
+  }
+
+  /**
+   * 记录一次写出到file的EXPORT操作，处理数量为文件字节数.
+   */
+  static void recordExport(long begin, Path file) throws IOException {
+    if (begin != 0L) {
+      GraphMetrics.end(GraphMetrics.Operation.EXPORT, begin, Files.size(file));
+    }
+  }
+
+  private static void writeDotId(Writer out, String word) throws IOException {
+    out.write('"');
+    for (int i = 0; i < word.length(); i++) {
+      char c = word.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.write('\\');
+      }
+      out.write(c);
+    }
+    out.write('"');
+  }
+
+  static void writeXml(Writer out, String text) throws IOException {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '&' -> out.write("&amp;");
+        case '<' -> out.write("&lt;");
+        case '>' -> out.write("&gt;");
+        case '"' -> out.write("&quot;");
+        case '\'' -> out.write("&apos;");
+        default -> out.write(c);
+      }
+    }
+  }
+}
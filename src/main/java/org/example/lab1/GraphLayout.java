@@ -0,0 +1,216 @@
+package org.example.lab1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * 进程内的力导向布局（Fruchterman-Reingold），坐标在单位正方形内.
+ * 斥力只在网格中相邻的格子之间计算，每轮的代价约为O(节点数 + 边数)，
+ * 斥力部分按节点并行. 边不区分方向，权重不影响布局.
+ */
+
+public final class GraphLayout {
+  private final int[] nodes; // 布局中的节点编号
+  private final double[] x;
+  private final double[] y;
+
+  private GraphLayout(int[] nodes, double[] x, double[] y) {
+    this.nodes = nodes;
+    this.x = x;
+    this.y = y;
+  }
+
+  /**
+   * 对视图中的节点做布局.
+   *
+   * @param view 要布局的视图
+   * @param iterations 迭代次数
+   * @param seed 初始位置的随机数种子
+   */
+  public static GraphLayout compute(GraphView view, int iterations, long seed) {
+    int[] nodes = view.nodes();
+    int n = nodes.length;
+    int[] slot = slots(nodes, view.graph().nodeCount());
+    // 视图中的边，转换成布局内的下标
+    int[][] edges = {new int[16], new int[16]};
+    int[] edgeCount = {0};
+    try {
+      view.forEachEdge((source, target, weight) -> {
+        if (source == target) {
+          return;
+        }
+        int k = edgeCount[0]++;
+        if (k == edges[0].length) {
+          edges[0] = Arrays.copyOf(edges[0], k * 2);
+          edges[1] = Arrays.copyOf(edges[1], k * 2);
+        }
+        edges[0][k] = slot[source];
+        edges[1][k] = slot[target];
+      });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // 这里的访问者不会抛出
+    }
+
+    double[] x = new double[n];
+    double[] y = new double[n];
+    SplittableRandom random = new SplittableRandom(seed);
+    for (int i = 0; i < n; i++) {
+      x[i] = random.nextDouble();
+      y[i] = random.nextDouble();
+    }
+    if (n > 1) {
+      new Solver(x, y, edges[0], edges[1], edgeCount[0]).run(iterations);
+    }
+    return new GraphLayout(nodes, x, y);
+  }
+
+  public int size() {
+    return nodes.length;
+  }
+
+  /**
+   * 第i个节点在图中的编号.
+   */
+  public int node(int i) {
+    return nodes[i];
+  }
+
+  public double x(int i) {
+    return x[i];
+  }
+
+  public double y(int i) {
+    return y[i];
+  }
+
+  /**
+   * 节点编号到布局下标的映射，不在布局中的为-1.
+   */
+  int[] slots(int nodeCount) {
+    return slots(nodes, nodeCount);
+  }
+
+  private static int[] slots(int[] nodes, int nodeCount) {
+    int[] slot = new int[nodeCount];
+    Arrays.fill(slot, -1);
+    for (int i = 0; i < nodes.length; i++) {
+      slot[nodes[i]] = i;
+    }
+    return slot;
+  }
+
+  private static final class Solver {
+    private final double[] x;
+    private final double[] y;
+    private final int[] sources;
+    private final int[] targets;
+    private final int edgeCount;
+    private final double k; // 理想边长
+    private final int cells; // 网格每边的格子数
+    private final double[] dx;
+    private final double[] dy;
+    private final int[] head;
+    private final int[] next;
+
+    Solver(double[] x, double[] y, int[] sources, int[] targets, int edgeCount) {
+      this.x = x;
+      this.y = y;
+      this.sources = sources;
+      this.targets = targets;
+      this.edgeCount = edgeCount;
+      int n = x.length;
+      k = Math.sqrt(1.0 / n);
+      // 格子边长为2k，超过这个距离的斥力忽略
+      cells = (int) Math.max(1, Math.min(1024, Math.floor(1 / (2 * k))));
+      dx = new double[n];
+      dy = new double[n];
+      head = new int[cells * cells];
+      next = new int[n];
+    }
+
+    void run(int iterations) {
+      int n = x.length;
+      for (int iter = 0; iter < iterations; iter++) {
+        double temperature = 0.1 * (1 - (double) iter / iterations);
+        buildGrid();
+        IntStream.range(0, n).parallel().forEach(this::repulse);
+        for (int e = 0; e < edgeCount; e++) {
+          attract(sources[e], targets[e]);
+        }
+        for (int i = 0; i < n; i++) {
+          double len = Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i]);
+          if (len > 0) {
+            double step = Math.min(len, temperature) / len;
+            x[i] = Math.min(1, Math.max(0, x[i] + dx[i] * step));
+            y[i] = Math.min(1, Math.max(0, y[i] + dy[i] * step));
+          }
+        }
+      }
+    }
+
+    private int cell(double v) {
+      return Math.min(cells - 1, (int) (v * cells));
+    }
+
+    private void buildGrid() {
+      Arrays.fill(head, -1);
+      for (int i = 0; i < x.length; i++) {
+        int c = cell(y[i]) * cells + cell(x[i]);
+        next[i] = head[c];
+        head[c] = i;
+      }
+    }
+
+    /**
+     * 计算节点i受到的斥力，同时清零上一轮的位移. 只写dx[i]、dy[i]，可以并行.
+     */
+    private void repulse(int i) {
+      double fx = 0;
+      double fy = 0;
+      double limit = 4 * k * k;
+      int cx = cell(x[i]);
+      int cy = cell(y[i]);
+      for (int gy = Math.max(0, cy - 1); gy <= Math.min(cells - 1, cy + 1); gy++) {
+        for (int gx = Math.max(0, cx - 1); gx <= Math.min(cells - 1, cx + 1); gx++) {
+          for (int j = head[gy * cells + gx]; j >= 0; j = next[j]) {
+            if (j == i) {
+              continue;
+            }
+            double ddx = x[i] - x[j];
+            double ddy = y[i] - y[j];
+            double d2 = ddx * ddx + ddy * ddy;
+            if (d2 < 1e-12) {
+              // 重合的节点按下标错开
+              ddx = (i < j ? -1 : 1) * 1e-6;
+              d2 = 1e-12;
+            }
+            if (d2 < limit) {
+              double f = k * k / d2; // (k^2 / d) / d，乘上分量得到单位方向上的力
+              fx += ddx * f;
+              fy += ddy * f;
+            }
+          }
+        }
+      }
+      dx[i] = fx;
+      dy[i] = fy;
+    }
+
+    private void attract(int s, int t) {
+      double ddx = x[s] - x[t];
+      double ddy = y[s] - y[t];
+      double d = Math.sqrt(ddx * ddx + ddy * ddy);
+      if (d == 0) {
+        return;
+      }
+      double f = d / k; // (d^2 / k) / d
+      dx[s] -= ddx * f;
+      dy[s] -= ddy * f;
+      dx[t] += ddx * f;
+      dy[t] += ddy * f;
+    }
+  }
+}
@@ -0,0 +1,10 @@
+package org.example.lab1;
+
+/**
+ * 图修改事件的监听器，在修改完成后由修改图的线程调用.
+ */
+
+@FunctionalInterface
+public interface GraphListener {
+  void graphChanged(GraphChange change);
+}
@@ -0,0 +1,239 @@
+package org.example.lab1;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.EventType;
+
+/**
+ * 图操作的运行指标：每种操作的次数、处理数量、累计耗时和按2的幂分桶的耗时直方图.
+ * 计数使用LongAdder，多线程下几乎没有竞争. 指标默认关闭（系统属性lab1.metrics=true时开启），
+ * 关闭且没有JFR录制时每次操作只多一次标志读取. 同样的数据会作为GraphOperationEvent
+ * 提交给JFR，也可以通过registerMBean在JMX中查看.
+ */
+
+public final class GraphMetrics {
+  /**
+   * 被统计的操作以及各自的"处理数量"的含义.
+   */
+  public enum Operation {
+    /** 读取并分词语料，数量为单词数. */
+    INGEST,
+    /** 批量加边，数量为插入的边数（同一条边重复出现按次数计）. */
+    EDGE_INSERT,
+    /** 单源最短路径（含增量修复），数量为出堆的节点数. */
+    SHORTEST_PATH,
+    /** 还原最短路径，数量为得到的路径数. */
+    PATH_ENUMERATION,
+    /** 桥接词查询，数量为查询的单词对数. */
+    BRIDGE_QUERY,
+    /** 插入桥接词生成新文本，数量为输入的单词数. */
+    TEXT_GENERATION,
+    /** 随机游走，数量为走过的步数. */
+    RANDOM_WALK,
+    /** 导出和保存，数量为写出的字节数. */
+    EXPORT
+  }
+
+  public static final String MBEAN_NAME = "org.example.lab1:type=GraphMetrics";
+  private static final EventType EVENT_TYPE = EventType.getEventType(GraphOperationEvent.class);
+  private static final Map<Operation, Stats> STATS = new EnumMap<>(Operation.class);
+  private static volatile boolean enabled = Boolean.getBoolean("lab1.metrics");
+
+  static {
+    for (Operation operation : Operation.values()) {
+      STATS.put(operation, new Stats());
+    }
+  }
+
+  private GraphMetrics() {
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static void setEnabled(boolean value) {
+    enabled = value;
+  }
+
+  /**
+   * 操作开始. 指标关闭且JFR没有录制该事件时返回0，end会直接返回.
+   */
+  static long begin() {
+    return enabled || EVENT_TYPE.isEnabled() ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * 操作结束，记录耗时和处理数量.
+   *
+   * @param begin begin的返回值
+   */
+  static void end(Operation operation, long begin, long items) {
+    if (begin == 0L) {
+      return;
+    }
+    long elapsed = System.nanoTime() - begin;
+    if (enabled) {
+      STATS.get(operation).record(elapsed, items);
+    }
+    GraphOperationEvent event = new GraphOperationEvent();
+    if (event.shouldCommit()) {
+      event.operation = operation.name();
+      event.items = items;
+      event.elapsed = elapsed;
+      event.commit();
+    }
+  }
+
+  /**
+   * 某种操作的统计结果.
+   */
+  public static OperationStats stats(Operation operation) {
+    return STATS.get(operation).snapshot();
+  }
+
+  /**
+   * 清空所有统计.
+   */
+  public static void reset() {
+    for (Stats stats : STATS.values()) {
+      stats.reset();
+    }
+  }
+
+  /**
+   * 把指标注册到平台MBeanServer，重复调用没有影响.
+   */
+  public static void registerMBean() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName name = new ObjectName(MBEAN_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(new MxBean(), name);
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot register " + MBEAN_NAME, e);
+    }
+  }
+
+  /**
+   * 某种操作的统计快照.
+   *
+   * @param count 执行次数
+   * @param items 累计处理数量
+   * @param totalNanos 累计耗时
+   * @param latencyBuckets 第i个桶是耗时在[2^(i-1), 2^i)纳秒内的次数
+   */
+  public record OperationStats(long count, long items, long totalNanos, long[] latencyBuckets) {
+    /**
+     * 按操作本身的耗时计算的处理速率，例如INGEST的每秒单词数.
+     */
+    public double itemsPerSecond() {
+      return totalNanos == 0 ? 0 : items * 1e9 / totalNanos;
+    }
+
+    /**
+     * 耗时的近似分位数，返回所在桶的上界（纳秒）.
+     */
+    public long percentileNanos(double percentile) {
+      long rank = (long) Math.ceil(count * percentile);
+      long seen = 0;
+      for (int i = 0; i < latencyBuckets.length; i++) {
+        seen += latencyBuckets[i];
+        if (seen >= rank && seen > 0) {
+          return i >= 63 ? Long.MAX_VALUE : 1L << i;
+        }
+      }
+      return 0;
+    }
+  }
+
+  private static final class Stats {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder[] buckets = new LongAdder[64];
+
+    Stats() {
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    void record(long elapsed, long n) {
+      count.increment();
+      items.add(n);
+      nanos.add(elapsed);
+      buckets[64 - Long.numberOfLeadingZeros(Math.max(0, elapsed))].increment();
+    }
+
+    OperationStats snapshot() {
+      long[] latency = new long[buckets.length];
+      for (int i = 0; i < latency.length; i++) {
+        latency[i] = buckets[i].sum();
+      }
+      return new OperationStats(count.sum(), items.sum(), nanos.sum(), latency);
+    }
+
+    void reset() {
+      count.reset();
+      items.reset();
+      nanos.reset();
+      for (LongAdder bucket : buckets) {
+        bucket.reset();
+      }
+    }
+  }
+
+  private static final class MxBean implements GraphMetricsMXBean {
+    @Override
+    public boolean isEnabled() {
+      return GraphMetrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean value) {
+      GraphMetrics.setEnabled(value);
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+      return collect(OperationStats::count);
+    }
+
+    @Override
+    public Map<String, Long> getItems() {
+      return collect(OperationStats::items);
+    }
+
+    @Override
+    public Map<String, Double> getItemsPerSecond() {
+      return collect(OperationStats::itemsPerSecond);
+    }
+
+    @Override
+    public Map<String, Long> getP99Nanos() {
+      return collect(stats -> stats.percentileNanos(0.99));
+    }
+
+    @Override
+    public void reset() {
+      GraphMetrics.reset();
+    }
+
+    private static <T> Map<String, T> collect(Function<OperationStats, T> value) {
+      Map<String, T> result = new LinkedHashMap<>();
+      for (Operation operation : Operation.values()) {
+        result.put(operation.name(), value.apply(stats(operation)));
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package org.example.lab1;
+
+import java.util.Map;
+
+/**
+ * GraphMetrics的JMX接口，各个Map以GraphMetrics.Operation的名称为键.
+ */
+
+public interface GraphMetricsMXBean {
+  boolean isEnabled();
+
+  void setEnabled(boolean enabled);
+
+  /**
+   * 每种操作的执行次数.
+   */
+  Map<String, Long> getCounts();
+
+  /**
+   * 每种操作累计处理的数量.
+   */
+  Map<String, Long> getItems();
+
+  /**
+   * 每种操作处理数量的速率（按操作本身的耗时计算）.
+   */
+  Map<String, Double> getItemsPerSecond();
+
+  /**
+   * 每种操作耗时的99分位数（纳秒，按2的幂分桶的上界）.
+   */
+  Map<String, Long> getP99Nanos();
+
+  void reset();
+}
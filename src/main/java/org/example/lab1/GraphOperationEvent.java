@@ -0,0 +1,31 @@
+package org.example.lab1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 图操作的JFR事件，由GraphMetrics在操作结束时提交. 没有在录制时不产生任何开销.
+ */
+
+@Name("org.example.lab1.GraphOperation")
+@Label("Graph Operation")
+@Category({"Lab1", "Graph"})
+@Description("一次图操作的耗时和处理的数量")
+@StackTrace(false)
+final class GraphOperationEvent extends Event {
+  @Label("Operation")
+  String operation;
+
+  @Label("Items")
+  @Description("处理的数量，含义见GraphMetrics.Operation")
+  long items;
+
+  @Label("Elapsed")
+  @Timespan(Timespan.NANOSECONDS)
+  long elapsed;
+}
@@ -0,0 +1,129 @@
+package org.example.lab1;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Graph之上的查询缓存，按LRU淘汰，最多保存maxEntries项.
+ * 最短路径按起点缓存整棵最短路径树，同一起点的任意终点都从缓存回答；
+ * 桥接词按(word1, word2)缓存结果. 参数先转成小写再作为键.
+ * 缓存注册为图的监听器，addEdge、setWordsMap、setWords等修改会清空缓存.
+ * 计算开始之后图被修改时，算出的结果不写入缓存.
+ */
+
+public final class GraphQueryCache implements GraphListener {
+  private record Key(boolean bridge, String first, String second) {
+  }
+
+  private final Graph graph;
+  private final Map<Key, Object> entries;
+  private long hits;
+  private long misses;
+  private long generation; // 图每修改一次加1
+
+  /**
+   * 创建缓存并注册到graph上.
+   *
+   * @param graph 被缓存的图
+   * @param maxEntries 最多缓存的条目数
+   */
+  public GraphQueryCache(Graph graph, int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+    }
+    this.graph = graph;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+        return size() > maxEntries;
+      }
+    };
+    graph.addGraphListener(this);
+  }
+
+  /**
+   * 与Graph.calcAllShortestPaths相同的结果，最短路径树按起点缓存.
+   */
+  public List<List<String>> calcAllShortestPaths(String word1, String word2) {
+    word1 = word1.toLowerCase();
+    word2 = word2.toLowerCase();
+    ShortestPathTree tree = calcShortestPathTree(word1);
+    if (tree == null || !tree.contains(word2)) {
+      // 单词不在图中，由Graph给出对应的提示，不需要运行Dijkstra
+      return graph.calcAllShortestPaths(word1, word2);
+    }
+    return Graph.formatPaths(tree, word2);
+  }
+
+  /**
+   * 与Graph.calcShortestPathTree相同，起点不在图中时返回null且不缓存.
+   */
+  public ShortestPathTree calcShortestPathTree(String word) {
+    Key key = new Key(false, word.toLowerCase(), null);
+    long computedAt = generation();
+    ShortestPathTree tree = (ShortestPathTree) lookup(key);
+    if (tree == null) {
+      tree = graph.calcShortestPathTree(key.first());
+      if (tree != null) {
+        store(key, tree, computedAt);
+      }
+    }
+    return tree;
+  }
+
+  /**
+   * 与Graph.queryBridgeWords相同的结果.
+   */
+  public String queryBridgeWords(String word1, String word2) {
+    Key key = new Key(true, word1.toLowerCase(), word2.toLowerCase());
+    long computedAt = generation();
+    String message = (String) lookup(key);
+    if (message == null) {
+      message = graph.queryBridgeWords(key.first(), key.second());
+      store(key, message, computedAt);
+    }
+    return message;
+  }
+
+  private synchronized Object lookup(Key key) {
+    Object value = entries.get(key);
+    if (value != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return value;
+  }
+
+  private synchronized long generation() {
+    return generation;
+  }
+
+  /**
+   * 写入缓存，computedAt之后图被修改过时丢弃，避免旧图上的结果在清空缓存之后才写入.
+   */
+  private synchronized void store(Key key, Object value, long computedAt) {
+    if (computedAt == generation) {
+      entries.put(key, value);
+    }
+  }
+
+  @Override
+  public synchronized void graphChanged(GraphChange change) {
+    generation++;
+    entries.clear();
+  }
+
+  public synchronized long hits() {
+    return hits;
+  }
+
+  public synchronized long misses() {
+    return misses;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+}
@@ -0,0 +1,177 @@
+package org.example.lab1;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+
+/**
+ * 不依赖外部程序的渲染器：对视图做GraphLayout布局后画成SVG或PNG.
+ * 节点较少时标出单词，较多时只画点和边.
+ */
+
+public final class GraphRenderer {
+  static final int DEFAULT_SIZE = 1600;
+  static final int DEFAULT_ITERATIONS = 100;
+  private static final int LABEL_LIMIT = 500; // 节点数不超过该值时画出单词
+  private static final int MARGIN = 40;
+
+  private GraphRenderer() {
+  }
+
+  /**
+   * 布局并按文件扩展名（.svg或其他）写出图像.
+   */
+  public static void render(GraphView view, Path file) throws IOException {
+    GraphLayout layout = GraphLayout.compute(view, DEFAULT_ITERATIONS, 42);
+    if (file.toString().toLowerCase(Locale.ROOT).endsWith(".svg")) {
+      writeSvg(view, layout, file, DEFAULT_SIZE, DEFAULT_SIZE);
+    } else {
+      writePng(view, layout, file, DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+  }
+
+  /**
+   * 以流的方式写出SVG.
+   */
+  public static void writeSvg(GraphView view, GraphLayout layout, Path file, int width, int height)
+          throws IOException {
+    long begin = GraphMetrics.begin();
+    GraphSnapshot g = view.graph();
+    int[] slot = layout.slots(g.nodeCount());
+    boolean labels = layout.size() <= LABEL_LIMIT;
+    try (Writer out = GraphExporter.open(file)) {
+      out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width
+              + "\" height=\"" + height + "\">\n");
+      out.write("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+      out.write("<g stroke=\"#3060a0\" stroke-opacity=\"0.4\">\n");
+      view.forEachEdge((source, target, weight) -> {
+        int s = slot[source];
+        int t = slot[target];
+        out.write("<line x1=\"");
+        out.write(coordinate(layout.x(s), width));
+        out.write("\" y1=\"");
+        out.write(coordinate(layout.y(s), height));
+        out.write("\" x2=\"");
+        out.write(coordinate(layout.x(t), width));
+        out.write("\" y2=\"");
+        out.write(coordinate(layout.y(t), height));
+        out.write("\" stroke-width=\"");
+        out.write(String.format(Locale.ROOT, "%.2f", strokeWidth(weight)));
+        out.write("\"/>\n");
+      });
+      out.write("</g>\n<g fill=\"#c04020\" font-family=\"sans-serif\" font-size=\"12\">\n");
+      for (int i = 0; i < layout.size(); i++) {
+        String cx = coordinate(layout.x(i), width);
+        String cy = coordinate(layout.y(i), height);
+        out.write("<circle cx=\"" + cx + "\" cy=\"" + cy + "\" r=\"3\"/>");
+        if (labels) {
+          out.write("<text x=\"" + cx + "\" y=\"" + cy + "\" dx=\"4\" dy=\"-4\">");
+          GraphExporter.writeXml(out, g.word(layout.node(i)));
+          out.write("</text>");
+        }
+        out.write('\n');
+      }
+      out.write("</g>\n</svg>\n");
+    }
+    GraphExporter.recordExport(begin, file);
+  }
+
+  /**
+   * 画到内存中的图像上.
+   */
+  public static BufferedImage renderImage(GraphView view, GraphLayout layout,
+                                          int width, int height) {
+    GraphSnapshot g = view.graph();
+    int[] slot = layout.slots(g.nodeCount());
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+              RenderingHints.VALUE_ANTIALIAS_ON);
+      graphics.setColor(Color.WHITE);
+      graphics.fillRect(0, 0, width, height);
+      graphics.setColor(new Color(0x30, 0x60, 0xa0, 100));
+      Line2D.Double line = new Line2D.Double();
+      view.forEachEdge((source, target, weight) -> {
+        int s = slot[source];
+        int t = slot[target];
+        line.setLine(scale(layout.x(s), width), scale(layout.y(s), height),
+                scale(layout.x(t), width), scale(layout.y(t), height));
+        graphics.setStroke(new BasicStroke((float) strokeWidth(weight)));
+        graphics.draw(line);
+      });
+      graphics.setColor(new Color(0xc0, 0x40, 0x20));
+      Ellipse2D.Double dot = new Ellipse2D.Double();
+      boolean labels = layout.size() <= LABEL_LIMIT;
+      for (int i = 0; i < layout.size(); i++) {
+        double px = scale(layout.x(i), width);
+        double py = scale(layout.y(i), height);
+        dot.setFrame(px - 3, py - 3, 6, 6);
+        graphics.fill(dot);
+        if (labels) {
+          graphics.drawString(g.word(layout.node(i)), (float) px + 4, (float) py - 4);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // 这里的访问者不会抛出
+    } finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+
+  public static void writePng(GraphView view, GraphLayout layout, Path file, int width, int height)
+          throws IOException {
+    long begin = GraphMetrics.begin();
+    ImageIO.write(renderImage(view, layout, width, height), "png", file.toFile());
+    GraphExporter.recordExport(begin, file);
+  }
+
+  /**
+   * 在PATH中查找Graphviz的dot，找不到时再检查Windows的默认安装位置，都没有时返回null.
+   */
+  static Path findDot() {
+    String pathEnv = System.getenv("PATH");
+    if (pathEnv != null) {
+      for (String dir : pathEnv.split(File.pathSeparator)) {
+        for (String name : new String[] {"dot", "dot.exe"}) {
+          try {
+            Path candidate = Paths.get(dir, name);
+            if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) {
+              return candidate;
+            }
+          } catch (RuntimeException e) {
+            // PATH中的无效目录，跳过
+          }
+        }
+      }
+    }
+    Path windows = Paths.get("C:\\Program Files\\Graphviz\\bin\\dot.exe");
+    return Files.isRegularFile(windows) ? windows : null;
+  }
+
+  private static double scale(double v, int size) {
+    return MARGIN + v * (size - 2 * MARGIN);
+  }
+
+  private static String coordinate(double v, int size) {
+    return String.format(Locale.ROOT, "%.1f", scale(v, size));
+  }
+
+  private static double strokeWidth(int weight) {
+    return 0.5 + Math.log1p(weight);
+  }
+}
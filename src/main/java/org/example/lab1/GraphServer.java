@@ -0,0 +1,244 @@
+package org.example.lab1;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 无界面的查询服务，基于JDK自带的com.sun.net.httpserver.
+ *
+ * <p>向/query发送POST请求，请求体每行一条命令，一次请求可以包含任意多条命令：
+ * <pre>
+ * bridge word1 word2        桥接词查询，返回与queryBridgeWords相同的字符串
+ * text words...             插入桥接词生成新文本，返回字符串
+ * path word1 word2 [limit]  最短路径，返回与calcAllShortestPaths相同的二维数组，
+ *                           最多返回limit条（默认且至多1000条），路径总数用count查询
+ * count word1 word2         最短路径的条数（不枚举路径），单词不存在时为0
+ * reach word1 word2         word1是否有路径到达word2，返回true或false
+ * walk [maxLength]          一次随机游走，返回单词数组
+ * </pre>
+ * 响应为application/x-ndjson，按命令顺序每条命令一行JSON，出错的命令返回{"error": "..."}，
+ * 空行被忽略. 每个请求在单独的虚拟线程上处理（不支持时使用缓存线程池），
+ * 所有查询都在ConcurrentGraph当前发布的快照上执行，互不阻塞.
+ */
+
+public final class GraphServer implements AutoCloseable {
+  private static final int MAX_PATHS = 1000; // path命令最多返回的路径条数
+  private final ConcurrentGraph graph;
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  private GraphServer(ConcurrentGraph graph, HttpServer server, ExecutorService executor) {
+    this.graph = graph;
+    this.server = server;
+    this.executor = executor;
+  }
+
+  /**
+   * 启动服务.
+   *
+   * @param graph 要查询的图，可以在服务运行时继续修改
+   * @param address 监听地址，端口为0时自动分配
+   */
+  public static GraphServer start(ConcurrentGraph graph, InetSocketAddress address)
+          throws IOException {
+    HttpServer server = HttpServer.create(address, 0);
+    ExecutorService executor = TaskExecutors.newTaskExecutor("graph-server");
+    GraphServer graphServer = new GraphServer(graph, server, executor);
+    server.createContext("/query", graphServer::handle);
+    server.setExecutor(executor);
+    server.start();
+    return graphServer;
+  }
+
+  /**
+   * 用法：GraphServer 文本文件 [端口]，默认端口8080.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: GraphServer <text file> [port]");
+      return;
+    }
+    Graph g = new Graph();
+    long tokens = ParallelGraphBuilder.loadGraphFromFile(new File(args[0]), g,
+            Runtime.getRuntime().availableProcessors());
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+    GraphServer server = start(new ConcurrentGraph(g), new InetSocketAddress(port));
+    System.out.println("Loaded " + tokens + " words, listening on " + server.address());
+  }
+
+  /**
+   * 实际监听的地址.
+   */
+  public InetSocketAddress address() {
+    return server.getAddress();
+  }
+
+  /**
+   * 停止服务，正在处理的请求被中断.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Allow", "POST");
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      exchange.getResponseHeaders().set("Content-Type",
+              "application/x-ndjson; charset=utf-8");
+      exchange.sendResponseHeaders(200, 0); // 分块传输，边处理边写出
+      BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(),
+              StandardCharsets.UTF_8));
+      Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+              StandardCharsets.UTF_8));
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (!line.isBlank()) {
+          execute(line.trim(), out);
+          out.write('\n');
+        }
+      }
+      out.flush();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * 执行一条命令，把结果写成一个JSON值. 结果先写入缓冲区，命令出错时不会留下写了一半的JSON.
+   */
+  void execute(String command, Writer out) throws IOException {
+    StringWriter result = new StringWriter();
+    try {
+      run(command.split("\\s+"), result);
+    } catch (RuntimeException e) {
+      // 响应头已经发出，任何错误都只影响这一条命令，不能中断整个批次
+      result = new StringWriter();
+      result.write("{\"error\":");
+      writeString(result, e.getMessage() != null ? e.getMessage() : e.toString());
+      result.write('}');
+    }
+    out.write(result.toString());
+  }
+
+  private void run(String[] args, Writer out) throws IOException {
+    switch (args[0]) {
+      case "bridge" -> {
+        requireArgs(args, 2);
+        writeString(out, graph.queryBridgeWords(args[1], args[2]));
+      }
+      case "text" -> {
+        requireArgs(args, 1);
+        StringWriter text = new StringWriter();
+        graph.generateNewText(new StringReader(
+                String.join(" ", Arrays.copyOfRange(args, 1, args.length))), text, 1);
+        writeString(out, text.toString());
+      }
+      case "path" -> {
+        requireArgs(args, 2);
+        // 路径条数可能随图的规模指数增长，总是限制返回的条数
+        int limit = args.length > 3
+                ? Math.min(Integer.parseInt(args[3]), MAX_PATHS) : MAX_PATHS;
+        List<List<String>> paths = limitedPaths(args[1], args[2], limit);
+        out.write('[');
+        for (int i = 0; i < paths.size(); i++) {
+          if (i > 0) {
+            out.write(',');
+          }
+          writeArray(out, paths.get(i));
+        }
+        out.write(']');
+      }
+      case "count" -> {
+        requireArgs(args, 2);
+        ShortestPaths paths = graph.findShortestPaths(args[1], args[2]);
+        out.write(paths == null ? "0" : paths.count().toString());
+      }
+      case "reach" -> {
+        requireArgs(args, 2);
+        out.write(Boolean.toString(graph.isReachable(args[1], args[2])));
+      }
+      case "walk" -> {
+        int maxLength = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        List<List<String>> walks = graph.snapshot().walker()
+                .walks(1, maxLength, ThreadLocalRandom.current().nextLong());
+        writeArray(out, walks.isEmpty() ? List.of() : walks.get(0));
+      }
+      default -> throw new IllegalArgumentException("未知命令: " + args[0]);
+    }
+  }
+
+  /**
+   * 最多limit条最短路径，格式与calcAllShortestPaths相同.
+   */
+  private List<List<String>> limitedPaths(String word1, String word2, int limit) {
+    ShortestPaths paths = graph.findShortestPaths(word1, word2);
+    if (paths == null || !paths.isReachable()) {
+      return graph.calcAllShortestPaths(word1, word2); // 错误消息
+    }
+    List<List<String>> result = paths.paths(limit);
+    for (List<String> path : result) {
+      path.add("路径长度为：" + paths.distance());
+    }
+    return result;
+  }
+
+  private static void requireArgs(String[] args, int count) {
+    if (args.length <= count) {
+      throw new IllegalArgumentException(args[0] + "需要" + count + "个参数");
+    }
+  }
+
+  private static void writeArray(Writer out, List<String> values) throws IOException {
+    out.write('[');
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      writeString(out, values.get(i));
+    }
+    out.write(']');
+  }
+
+  private static void writeString(Writer out, String value) throws IOException {
+    out.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"' -> out.write("\\\"");
+        case '\\' -> out.write("\\\\");
+        case '\n' -> out.write("\\n");
+        case '\r' -> out.write("\\r");
+        case '\t' -> out.write("\\t");
+        default -> {
+          if (c < 0x20) {
+            out.write(String.format("\\u%04x", (int) c));
+          } else {
+            out.write(c);
+          }
+        }
+      }
+    }
+    out.write('"');
+  }
+}
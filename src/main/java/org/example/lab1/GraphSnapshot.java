@@ -0,0 +1,452 @@
+package org.example.lab1;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * 图的不可变快照，采用CSR（压缩稀疏行）布局.
+ * 节点使用稠密int编号，节点u的出边为targets/weights中[offsets[u], offsets[u + 1])这一段，
+ * 每段内按目标编号升序排列.
+ */
+
+public final class GraphSnapshot {
+  private final String[] words; // 编号 -> 单词
+  private final WordDictionary ids; // 单词 -> 编号
+  final int[] offsets;
+  final int[] targets;
+  final int[] weights;
+  private volatile Reverse reverse; // 反向邻接，首次使用时构建
+  private volatile BridgeWordIndex bridgeIndex;
+  private volatile RandomWalker walker;
+  private volatile PointToPointSearch pointToPoint;
+  private volatile ReachabilityIndex reachability;
+
+  private GraphSnapshot(String[] words, WordDictionary ids,
+                        int[] offsets, int[] targets, int[] weights) {
+    this.words = words;
+    this.ids = ids;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+  }
+
+  /**
+   * 由已经排好序的CSR数组直接构造快照，用于从二进制文件载入.
+   */
+  static GraphSnapshot of(String[] words, int[] offsets, int[] targets, int[] weights) {
+    return new GraphSnapshot(words, WordDictionary.of(words), offsets, targets, weights);
+  }
+
+  /**
+   * 由GraphBuilder编译的CSR数组构造快照，字典归快照所有.
+   */
+  static GraphSnapshot of(WordDictionary ids, int[] offsets, int[] targets, int[] weights) {
+    return new GraphSnapshot(ids.toArray(), ids, offsets, targets, weights);
+  }
+
+  /**
+   * 在base上合并一批修改过的边得到新快照. base的节点编号在ids中保持不变，新节点排在后面；
+   * changes为修改过的(源 << 32 | 目标)，升序且不重复，weightOf给出边(源, 目标)修改后的权重.
+   * 没有修改的行整段复制，不重新排序. base已经构建了反向CSR时同样合并，不在下次使用时重建.
+   */
+  static GraphSnapshot withChanges(GraphSnapshot base, WordDictionary ids, long[] changes,
+                                   int count, IntBinaryOperator weightOf) {
+    int n = ids.size();
+    int[][] csr = mergeRows(base.offsets, base.targets, base.weights, n, changes, count,
+            weightOf);
+    GraphSnapshot snapshot = new GraphSnapshot(ids.toArray(), ids, csr[0], csr[1], csr[2]);
+    Reverse r = base.reverse;
+    if (r != null) {
+      long[] reversed = new long[count];
+      for (int i = 0; i < count; i++) {
+        reversed[i] = (changes[i] & 0xFFFFFFFFL) << 32 | changes[i] >>> 32;
+      }
+      Arrays.sort(reversed);
+      int[][] rev = mergeRows(r.offsets, r.sources, r.weights, n, reversed, count,
+              (v, u) -> snapshot.weight(u, v));
+      snapshot.reverse = new Reverse(rev[0], rev[1], rev[2]);
+    }
+    return snapshot;
+  }
+
+  /**
+   * 把changes（(行 << 32 | 列)，升序且不重复）合并进CSR数组，行数扩展到rows.
+   * 已有的(行, 列)更新权重，没有的按列的顺序插入.
+   *
+   * @return {offsets, 列, 权重}
+   */
+  private static int[][] mergeRows(int[] offsets, int[] cols, int[] weights, int rows,
+                                   long[] changes, int count, IntBinaryOperator weightOf) {
+    int oldRows = offsets.length - 1;
+    int added = 0;
+    for (int k = 0; k < count; k++) {
+      int r = (int) (changes[k] >>> 32);
+      if (r >= oldRows
+              || Arrays.binarySearch(cols, offsets[r], offsets[r + 1], (int) changes[k]) < 0) {
+        added++;
+      }
+    }
+    int[] newOffsets = new int[rows + 1];
+    int[] newCols = new int[cols.length + added];
+    int[] newWeights = new int[cols.length + added];
+    int e = 0;
+    int k = 0;
+    int r = 0;
+    while (r < rows) {
+      int nextChanged = k < count ? (int) (changes[k] >>> 32) : rows;
+      if (nextChanged > r) {
+        // [r, nextChanged)行没有修改，整段复制
+        int from = rowStart(offsets, r);
+        int to = rowStart(offsets, nextChanged);
+        System.arraycopy(cols, from, newCols, e, to - from);
+        System.arraycopy(weights, from, newWeights, e, to - from);
+        int shift = e - from;
+        for (; r < nextChanged; r++) {
+          newOffsets[r] = rowStart(offsets, r) + shift;
+        }
+        e += to - from;
+        continue;
+      }
+      newOffsets[r] = e;
+      int i = rowStart(offsets, r);
+      int end = rowStart(offsets, r + 1);
+      while (i < end || (k < count && (int) (changes[k] >>> 32) == r)) {
+        int c = k < count && (int) (changes[k] >>> 32) == r
+                ? (int) changes[k] : Integer.MAX_VALUE;
+        if (i < end && cols[i] < c) {
+          newCols[e] = cols[i];
+          newWeights[e++] = weights[i++];
+        } else {
+          if (i < end && cols[i] == c) {
+            i++;
+          }
+          newCols[e] = c;
+          newWeights[e++] = weightOf.applyAsInt(r, c);
+          k++;
+        }
+      }
+      r++;
+    }
+    newOffsets[rows] = e;
+    return new int[][] {newOffsets, newCols, newWeights};
+  }
+
+  /**
+   * 行r在CSR中的起点，超出原有行数的行为空行.
+   */
+  private static int rowStart(int[] offsets, int r) {
+    return offsets[Math.min(r, offsets.length - 1)];
+  }
+
+  public int nodeCount() {
+    return words.length;
+  }
+
+  public int edgeCount() {
+    return targets.length;
+  }
+
+  /**
+   * 单词对应的编号，不在图中时返回-1.
+   */
+  public int id(String word) {
+    return ids.id(word);
+  }
+
+  public String word(int id) {
+    return words[id];
+  }
+
+  /**
+   * 所有节点，按编号顺序.
+   */
+  public List<String> nodes() {
+    return List.of(words);
+  }
+
+  public int outDegree(int u) {
+    return offsets[u + 1] - offsets[u];
+  }
+
+  /**
+   * 是否存在边u->v. 行内有序，使用二分查找.
+   */
+  public boolean hasEdge(int u, int v) {
+    return Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v) >= 0;
+  }
+
+  /**
+   * 边u->v的权重，不存在时返回0.
+   */
+  public int weight(int u, int v) {
+    int i = Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v);
+    return i >= 0 ? weights[i] : 0;
+  }
+
+  /**
+   * 节点的邻居及其权重，不在图中时返回空Map.
+   */
+  public Map<String, Integer> neighbors(String node) {
+    Map<String, Integer> result = new LinkedHashMap<>();
+    int u = id(node);
+    if (u >= 0) {
+      for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+        result.put(words[targets[i]], weights[i]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Map形式的只读邻接表，键为有出边的节点. 不复制数据，查询和迭代直接在CSR数组上进行，
+   * 与Graph.getWordsMap原来返回的HashMap相等.
+   */
+  public Map<String, Map<String, Integer>> asMap() {
+    return new AdjacencyView();
+  }
+
+  /**
+   * 反向CSR（入边），首次调用时构建.
+   */
+  Reverse reverse() {
+    Reverse r = reverse;
+    if (r == null) {
+      r = new Reverse(this);
+      reverse = r;
+    }
+    return r;
+  }
+
+  /**
+   * 桥接词索引，首次调用时构建.
+   */
+  public BridgeWordIndex bridgeIndex() {
+    BridgeWordIndex index = bridgeIndex;
+    if (index == null) {
+      index = new BridgeWordIndex(this);
+      bridgeIndex = index;
+    }
+    return index;
+  }
+
+  /**
+   * 加权随机游走器（含每个节点的别名表），首次调用时构建.
+   */
+  public RandomWalker walker() {
+    RandomWalker w = walker;
+    if (w == null) {
+      w = new RandomWalker(this);
+      walker = w;
+    }
+    return w;
+  }
+
+  /**
+   * 可达性索引，首次调用时构建.
+   */
+  public ReachabilityIndex reachability() {
+    ReachabilityIndex index = reachability;
+    if (index == null) {
+      index = new ReachabilityIndex(this, ReachabilityIndex.DEFAULT_TRAVERSALS, 42);
+      reachability = index;
+    }
+    return index;
+  }
+
+  /**
+   * 点对点最短路径查询，首次调用时创建.
+   */
+  public PointToPointSearch pointToPoint() {
+    PointToPointSearch search = pointToPoint;
+    if (search == null) {
+      search = new PointToPointSearch(this, PointToPointSearch.DEFAULT_LANDMARKS);
+      pointToPoint = search;
+    }
+    return search;
+  }
+
+  /**
+   * 以source为起点的单源最短路径.
+   */
+  public ShortestPathTree shortestPathTree(int source) {
+    return ShortestPathTree.compute(this, source);
+  }
+
+  /**
+   * 反向CSR：节点v的入边为sources/weights中[offsets[v], offsets[v + 1])这一段，按源编号升序.
+   */
+  static final class Reverse {
+    final int[] offsets;
+    final int[] sources;
+    final int[] weights;
+
+    private Reverse(int[] offsets, int[] sources, int[] weights) {
+      this.offsets = offsets;
+      this.sources = sources;
+      this.weights = weights;
+    }
+
+    private Reverse(GraphSnapshot graph) {
+      int n = graph.nodeCount();
+      offsets = new int[n + 1];
+      for (int target : graph.targets) {
+        offsets[target + 1]++;
+      }
+      for (int v = 0; v < n; v++) {
+        offsets[v + 1] += offsets[v];
+      }
+      sources = new int[graph.targets.length];
+      weights = new int[graph.targets.length];
+      // 按源节点编号顺序填入，每一行天然有序
+      int[] fill = Arrays.copyOf(offsets, n);
+      for (int u = 0; u < n; u++) {
+        for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+          int slot = fill[graph.targets[i]]++;
+          sources[slot] = u;
+          weights[slot] = graph.weights[i];
+        }
+      }
+    }
+  }
+
+  /**
+   * asMap返回的视图.
+   */
+  private final class AdjacencyView extends AbstractMap<String, Map<String, Integer>> {
+    private int size = -1; // 有出边的节点数，首次使用时统计
+
+    @Override
+    public Map<String, Integer> get(Object key) {
+      int u = key instanceof String word ? id(word) : -1;
+      return u >= 0 && outDegree(u) > 0 ? new RowView(u) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+      if (size < 0) {
+        int count = 0;
+        for (int u = 0; u < words.length; u++) {
+          if (outDegree(u) > 0) {
+            count++;
+          }
+        }
+        size = count;
+      }
+      return size;
+    }
+
+    @Override
+    public Set<Entry<String, Map<String, Integer>>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public Iterator<Entry<String, Map<String, Integer>>> iterator() {
+          return new Iterator<>() {
+            private int next = skipEmpty(0);
+
+            @Override
+            public boolean hasNext() {
+              return next < words.length;
+            }
+
+            @Override
+            public Entry<String, Map<String, Integer>> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              int u = next;
+              next = skipEmpty(u + 1);
+              return new SimpleImmutableEntry<>(words[u], new RowView(u));
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return AdjacencyView.this.size();
+        }
+      };
+    }
+
+    private int skipEmpty(int u) {
+      while (u < words.length && outDegree(u) == 0) {
+        u++;
+      }
+      return u;
+    }
+  }
+
+  /**
+   * 节点u的出边视图，按目标编号顺序迭代.
+   */
+  private final class RowView extends AbstractMap<String, Integer> {
+    private final int u;
+
+    RowView(int u) {
+      this.u = u;
+    }
+
+    @Override
+    public Integer get(Object key) {
+      int v = key instanceof String word ? id(word) : -1;
+      int i = v >= 0 ? Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v) : -1;
+      return i >= 0 ? weights[i] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      int v = key instanceof String word ? id(word) : -1;
+      return v >= 0 && hasEdge(u, v);
+    }
+
+    @Override
+    public int size() {
+      return outDegree(u);
+    }
+
+    @Override
+    public Set<Entry<String, Integer>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public Iterator<Entry<String, Integer>> iterator() {
+          return new Iterator<>() {
+            private int i = offsets[u];
+
+            @Override
+            public boolean hasNext() {
+              return i < offsets[u + 1];
+            }
+
+            @Override
+            public Entry<String, Integer> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              Entry<String, Integer> entry =
+                      new SimpleImmutableEntry<>(words[targets[i]], weights[i]);
+              i++;
+              return entry;
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return outDegree(u);
+        }
+      };
+    }
+  }
+}
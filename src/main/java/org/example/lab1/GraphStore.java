@@ -0,0 +1,217 @@
+package org.example.lab1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 图的二进制快照文件.
+ * 布局（大端序）：
+ * <pre>
+ *   头部    magic, version, 节点数n, 边数e, 词典大小d, 单词序列长度t
+ *   int[n + 1] offsets, int[e] targets, int[e] weights, int[t] 单词序列（词典编号）
+ *   词典    d个 (长度, UTF-8字节)，前n个是图的节点，其后是只出现在单词序列中的单词
+ * </pre>
+ * 数组区都是4字节对齐的整块数据，载入时直接映射，不需要解析.
+ */
+
+final class GraphStore {
+  static final int MAGIC = 0x4C475246; // "LGRF"
+  static final int VERSION = 1;
+  private static final int HEADER_BYTES = 24;
+  private static final int READ_CHUNK_INTS = 1 << 26; // 每次映射256MB
+
+  /**
+   * 载入结果.
+   */
+  record Loaded(GraphSnapshot graph, List<String> words) {
+  }
+
+  private GraphStore() {
+  }
+
+  static void save(GraphSnapshot graph, List<String> words, Path file) throws IOException {
+    long begin = GraphMetrics.begin();
+    int n = graph.nodeCount();
+    int e = graph.edgeCount();
+    // 单词序列中不是节点的单词追加到词典末尾
+    List<String> dictionary = new ArrayList<>(graph.nodes());
+    Map<String, Integer> extra = new HashMap<>();
+    int[] tokens = new int[words.size()];
+    for (int i = 0; i < tokens.length; i++) {
+      String word = words.get(i);
+      int id = graph.id(word);
+      if (id < 0) {
+        Integer known = extra.get(word);
+        if (known == null) {
+          known = dictionary.size();
+          extra.put(word, known);
+          dictionary.add(word);
+        }
+        id = known;
+      }
+      tokens[i] = id;
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(e)
+              .putInt(dictionary.size()).putInt(tokens.length).flip();
+      writeFully(channel, header);
+      writeInts(channel, graph.offsets);
+      writeInts(channel, graph.targets);
+      writeInts(channel, graph.weights);
+      writeInts(channel, tokens);
+      ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+      for (String word : dictionary) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        if (buf.remaining() < 4 + bytes.length) {
+          buf.flip();
+          writeFully(channel, buf);
+          buf = ByteBuffer.allocate(Math.max(buf.capacity(), 4 + bytes.length));
+        }
+        buf.putInt(bytes.length).put(bytes);
+      }
+      buf.flip();
+      writeFully(channel, buf);
+    }
+    GraphExporter.recordExport(begin, file);
+  }
+
+  static Loaded load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      checkSize(file, channel, HEADER_BYTES);
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      if (header.getInt() != MAGIC) {
+        throw new IOException("Not a graph snapshot: " + file);
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported graph snapshot version: " + version);
+      }
+      int n = header.getInt();
+      int e = header.getInt();
+      int d = header.getInt();
+      int t = header.getInt();
+      checkCounts(file, n, e, d, t);
+      if (d < n) {
+        throw new IOException("Corrupt graph snapshot header: " + file);
+      }
+      checkSize(file, channel, HEADER_BYTES + 4L * n + 4 + 8L * e + 4L * t);
+      long position = HEADER_BYTES;
+      int[] offsets = readInts(channel, position, n + 1);
+      position += 4L * (n + 1);
+      int[] targets = readInts(channel, position, e);
+      position += 4L * e;
+      int[] weights = readInts(channel, position, e);
+      position += 4L * e;
+      // 单词序列保留在映射区中，按需解码
+      IntBuffer tokens = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * t)
+              .asIntBuffer();
+      position += 4L * t;
+      MappedByteBuffer dict = channel.map(FileChannel.MapMode.READ_ONLY, position,
+              channel.size() - position);
+      String[] dictionary = new String[d];
+      for (int i = 0; i < d; i++) {
+        int length = dict.remaining() < 4 ? -1 : dict.getInt();
+        if (length < 0 || length > dict.remaining()) {
+          throw new IOException("Truncated graph snapshot dictionary: " + file);
+        }
+        byte[] bytes = new byte[length];
+        dict.get(bytes);
+        dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
+      String[] nodes = new String[n];
+      System.arraycopy(dictionary, 0, nodes, 0, n);
+      GraphSnapshot graph = GraphSnapshot.of(nodes, offsets, targets, weights);
+      return new Loaded(graph, new TokenList(tokens, dictionary));
+    }
+  }
+
+  /**
+   * 头部中的数量都不能为负，否则文件已损坏.
+   */
+  static void checkCounts(Path file, int... counts) throws IOException {
+    for (int count : counts) {
+      if (count < 0) {
+        throw new IOException("Corrupt header in " + file + ": negative count " + count);
+      }
+    }
+  }
+
+  /**
+   * 文件至少要有bytes字节，截断的文件在读取数组之前就报错.
+   */
+  static void checkSize(Path file, FileChannel channel, long bytes) throws IOException {
+    if (channel.size() < bytes) {
+      throw new IOException("Truncated file " + file + ": expected at least " + bytes
+              + " bytes, found " + channel.size());
+    }
+  }
+
+  /**
+   * 从position开始读出count个int. 分段映射，数组超过2GB字节时也可以读取.
+   */
+  static int[] readInts(FileChannel channel, long position, int count) throws IOException {
+    int[] values = new int[count];
+    for (int i = 0; i < count; i += READ_CHUNK_INTS) {
+      int len = Math.min(READ_CHUNK_INTS, count - i);
+      channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * i, 4L * len).asIntBuffer()
+              .get(values, i, len);
+    }
+    return values;
+  }
+
+  static void writeInts(FileChannel channel, int[] values) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20);
+    IntBuffer ints = buf.asIntBuffer();
+    for (int i = 0; i < values.length; i += ints.capacity()) {
+      int len = Math.min(ints.capacity(), values.length - i);
+      ints.clear();
+      ints.put(values, i, len);
+      buf.clear().limit(len * 4);
+      writeFully(channel, buf);
+    }
+  }
+
+  static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+    while (buf.hasRemaining()) {
+      channel.write(buf);
+    }
+  }
+
+  /**
+   * 映射区上的只读单词序列.
+   */
+  private static final class TokenList extends AbstractList<String> implements RandomAccess {
+    private final IntBuffer tokens;
+    private final String[] dictionary;
+
+    TokenList(IntBuffer tokens, String[] dictionary) {
+      this.tokens = tokens;
+      this.dictionary = dictionary;
+    }
+
+    @Override
+    public String get(int index) {
+      return dictionary[tokens.get(index)];
+    }
+
+    @Override
+    public int size() {
+      return tokens.capacity();
+    }
+  }
+}
@@ -2,27 +2,57 @@ package org.example.lab1;
 
 
 import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 /**
  * UI.
  */
 
 public class GraphUi extends Application {
+  // 文本列表每行显示的单词数
+  private static final int WORDS_PER_ROW = 20;
+  private static final int ROW_PATH_LIMIT = 10; // 每个终点最多显示的路径条数
+  private static final int FILTER_DELAY_MILLIS = 250;
+  private static final int LOAD_CHUNK_WORDS = 1 << 16; // 载入文件时每次追加到图中的单词数
 
-  private Graph graph = new Graph();
+  // 加载完成后在FX线程上整体替换，后台任务只读取
+  private volatile Graph graph = new Graph();
+  private final ExecutorService executor = TaskExecutors.newTaskExecutor("graph-ui-task");
+  private final ProgressBar progressBar = new ProgressBar(0);
+  private final Label statusLabel = new Label();
+  private final Button cancelButton = new Button("取消");
+  private Task<?> currentTask;
+  private ShortestPathTree pathTree; // 当前显示的到所有节点的最短路径
+  private Task<?> filterTask; // 正在进行的终点过滤
 
 
   public static void main(String[] args) {
@@ -39,16 +69,59 @@ public class GraphUi extends Application {
     int j;
     // 载入文件
     Button loadFileButton = new Button("载入文件");
-    TextArea fileContent = new TextArea();
-    fileContent.setEditable(false);
+    ListView<String> fileContent = new ListView<>();
     loadFileButton.setOnAction(e -> {
       FileChooser fileChooser = new FileChooser();
       File file = fileChooser.showOpenDialog(primaryStage);
       if (file != null) {
-        List<String> words = GraphUtils.readWordsFromFile(file);
-        graph.createGraph(words);
-        graph.setWords(words);
-        fileContent.setText(String.join(" ", words));
+        Task<Graph> task = new Task<>() {
+          @Override
+          protected Graph call() throws Exception {
+            updateMessage("正在读取 " + file.getName());
+            long size = Math.max(1, file.length());
+            // 单词分块追加到图中，边和紧凑的单词序列边读边建，不保留完整的单词列表
+            Graph loaded = new Graph();
+            List<String> chunk = new ArrayList<>(LOAD_CHUNK_WORDS);
+            GraphUtils.forEachWord(file, word -> {
+              chunk.add(word);
+              if (chunk.size() == LOAD_CHUNK_WORDS) {
+                loaded.appendWords(chunk);
+                chunk.clear();
+              }
+            }, done -> {
+              checkCancelled();
+              updateProgress(done, size);
+            });
+            loaded.appendWords(chunk);
+            checkCancelled();
+            updateMessage("正在建图");
+            updateProgress(-1, 1);
+            loaded.freeze(); // 在后台建好快照，之后的查询只读
+            checkCancelled();
+            return loaded;
+          }
+
+          private void checkCancelled() {
+            if (isCancelled()) {
+              throw new CancellationException();
+            }
+          }
+
+          @Override
+          protected void succeeded() {
+            // 随机游走只在FX线程上进行，换图后旧图的游走文件不会再被写入
+            Graph previous = graph;
+            graph = getValue();
+            previous.closeWalkSink();
+            // 每行WORDS_PER_ROW个单词，只有可见的行才会拼接
+            List<String> words = graph.getWords();
+            int rows = (words.size() + WORDS_PER_ROW - 1) / WORDS_PER_ROW;
+            fileContent.setItems(new LazyRows(rows, row -> String.join(" ",
+                    words.subList(row * WORDS_PER_ROW,
+                            Math.min(words.size(), (row + 1) * WORDS_PER_ROW)))));
+          }
+        };
+        runTask(task);
       }
     });
 
@@ -57,11 +130,27 @@ public class GraphUi extends Application {
     displayGraphButton.setOnAction(e -> {
       String dotPath = "graph.dot";
       String imagePath = "graph.png";
-      graph.showDirectedGraph(graph);
-      graph.generateDotFile(dotPath);
-      graph.renderGraph(dotPath, imagePath);
-      // 创建新窗口显示图像
-      showImageInNewStage(imagePath);
+      Graph g = graph;
+      Task<Void> task = new Task<>() {
+        @Override
+        protected Void call() {
+          updateMessage("正在生成DOT文件");
+          g.showDirectedGraph(g);
+          g.generateDotFile(dotPath);
+          if (!isCancelled()) {
+            updateMessage("正在渲染图像");
+            g.renderGraph(dotPath, imagePath);
+          }
+          return null;
+        }
+
+        @Override
+        protected void succeeded() {
+          // 创建新窗口显示图像
+          showImageInNewStage(imagePath);
+        }
+      };
+      runTask(task);
     });
 
     // 查询桥接词
@@ -73,8 +162,12 @@ public class GraphUi extends Application {
     TextArea bridgeWordsOutput = new TextArea();
     bridgeWordsOutput.setEditable(false);
     queryBridgeWordsButton.setOnAction(e -> {
-      String bridgeWords = graph.queryBridgeWords(word1Field.getText(), word2Field.getText());
-      bridgeWordsOutput.setText(bridgeWords != null ? bridgeWords : "No bridge words found.");
+      String word1 = word1Field.getText();
+      String word2 = word2Field.getText();
+      Graph g = graph;
+      runTask(task(() -> g.queryBridgeWords(word1, word2), bridgeWords ->
+              bridgeWordsOutput.setText(bridgeWords != null ? bridgeWords
+                      : "No bridge words found.")));
     });
 
 
@@ -85,8 +178,10 @@ public class GraphUi extends Application {
     TextArea newTextOutput = new TextArea();
     newTextOutput.setEditable(false);
     generateNewTextButton.setOnAction(e -> {
-      String newText = graph.generateNewText(inputTextField.getText());
-      newTextOutput.setText(newText); //写入文本框
+      String inputText = inputTextField.getText();
+      Graph g = graph;
+      runTask(task(() -> g.generateNewText(inputText),
+              newTextOutput::setText)); //写入文本框
     });
 
     // 计算两个单词之间的最短路径
@@ -95,47 +190,67 @@ public class GraphUi extends Application {
     TextField endNodeField = new TextField();
     endNodeField.setPromptText("终止节点");
     Button calcShortestPathButton = new Button("计算最短路径");
-    TextArea shortestPathOutput = new TextArea();
-    shortestPathOutput.setEditable(false);
+    ListView<String> shortestPathOutput = new ListView<>();
+    // 到所有节点的最短路径：按终点过滤
+    TextField targetFilterField = new TextField();
+    targetFilterField.setPromptText("过滤终点");
+    CheckBox reachableOnlyBox = new CheckBox("仅显示可达");
+    // 过滤要扫描所有节点，在后台进行；新的过滤开始时取消还没完成的上一次
+    Runnable applyFilter = () -> {
+      ShortestPathTree tree = pathTree;
+      if (tree == null) {
+        return;
+      }
+      String filter = targetFilterField.getText().trim().toLowerCase(Locale.ROOT);
+      boolean reachableOnly = reachableOnlyBox.isSelected();
+      if (filterTask != null) {
+        filterTask.cancel(true);
+      }
+      filterTask = task(() -> targetRows(tree, filter, reachableOnly),
+              shortestPathOutput::setItems);
+      runTask(filterTask);
+    };
+    // 输入停顿一段时间后才过滤，连续输入时不会每个字符都扫描一遍
+    PauseTransition filterDelay = new PauseTransition(Duration.millis(FILTER_DELAY_MILLIS));
+    filterDelay.setOnFinished(e -> applyFilter.run());
+    targetFilterField.textProperty().addListener((obs, old, text) -> filterDelay.playFromStart());
+    reachableOnlyBox.selectedProperty().addListener((obs, old, selected) -> applyFilter.run());
     calcShortestPathButton.setOnAction(e -> {
       String startNode = startNodeField.getText().trim();
       String endNode = endNodeField.getText().trim();
+      pathTree = null;
 
       if (startNode.isEmpty()) {
-        shortestPathOutput.setText("请输入起始节点的名称。");
+        shortestPathOutput.setItems(FXCollections.observableArrayList("请输入起始节点的名称。"));
         return;
       }
 
+      Graph g = graph;
       if (endNode.isEmpty()) {
-        // 计算从起始节点到图中所有其他节点的最短路径
-        Map<String, List<List<String>>> allPaths = graph.calcAllShortestPathsToAll(startNode);
-        StringBuilder allPathsOutput = new StringBuilder();
-        if (allPaths.isEmpty()) {
-          shortestPathOutput.setText("路径不存在");
-        } else {
-          allPaths.forEach((target, paths) -> {
-            allPathsOutput.append("从 ").append(startNode)
-                    .append(" 到 ").append(target).append(" 的最短路径:\n");
-            for (List<String> path : paths) {
-              allPathsOutput.append(String.join(" -> ", path)).append("\n");
-            }
-            allPathsOutput.append("\n");
-
-          });
-          shortestPathOutput.setText(allPathsOutput.toString());
-        }
+        // 计算从起始节点到图中所有其他节点的最短路径，只运行一次Dijkstra，
+        // 每个终点的路径在对应的行显示时才还原
+        runTask(task(() -> g.calcShortestPathTree(startNode), tree -> {
+          if (tree == null || tree.nodes().size() <= 1) {
+            shortestPathOutput.setItems(FXCollections.observableArrayList("路径不存在"));
+          } else {
+            pathTree = tree;
+            applyFilter.run();
+          }
+        }));
       } else {
         // 计算从起始节点到终止节点的最短路径
-        List<List<String>> paths = graph.calcAllShortestPaths(startNode, endNode);
-        if (paths.isEmpty() || paths.get(0).contains("路径不存在")) {
-          shortestPathOutput.setText("未找到路径，可能是起始或终止单词不存在于图中。");
-        } else {
-          StringBuilder pathsOutput = new StringBuilder();
-          for (List<String> path : paths) {
-            pathsOutput.append(String.join(" -> ", path)).append("\n");
+        runTask(task(() -> g.calcAllShortestPaths(startNode, endNode), paths -> {
+          if (paths.isEmpty() || paths.get(0).contains("路径不存在")) {
+            shortestPathOutput.setItems(FXCollections.observableArrayList(
+                    "未找到路径，可能是起始或终止单词不存在于图中。"));
+          } else {
+            List<String> lines = new ArrayList<>();
+            for (List<String> path : paths) {
+              lines.add(String.join(" -> ", path));
+            }
+            shortestPathOutput.setItems(FXCollections.observableArrayList(lines));
           }
-          shortestPathOutput.setText(pathsOutput.toString());
-        }
+        }));
       }
     });
 
@@ -180,16 +295,119 @@ public class GraphUi extends Application {
     grid.add(endNodeField, 1, 6);
     grid.add(calcShortestPathButton, 0, 7);
     grid.add(shortestPathOutput, 1, 7);
+    grid.add(new HBox(10, targetFilterField, reachableOnlyBox), 2, 7);
     grid.add(continueWalkButton, 0, 8);
     grid.add(stopWalkButton, 1, 8);
     grid.add(restartWalkButton, 2, 8);
     grid.add(randomWalkOutput, 0, 9, 3, 1);
+    // 后台任务的进度和取消
+    cancelButton.setDisable(true);
+    cancelButton.setOnAction(e -> {
+      if (currentTask != null) {
+        currentTask.cancel(true);
+      }
+    });
+    grid.add(new HBox(10, progressBar, cancelButton, statusLabel), 0, 10, 3, 1);
 
     Scene scene = new Scene(grid, 800, 600);
     primaryStage.setScene(scene);
     primaryStage.show();
   }
 
+  @Override
+  public void stop() {
+    executor.shutdownNow();
+    graph.closeWalkSink();
+  }
+
+  /**
+   * 最短路径树中除起点外、名称包含filter的终点，每行的路径在显示时才还原，
+   * 最多显示ROW_PATH_LIMIT条，另外给出路径总数. 在后台线程调用，被中断时抛出CancellationException.
+   */
+  private static ObservableList<String> targetRows(ShortestPathTree tree, String filter,
+                                                   boolean reachableOnly) {
+    List<String> nodes = tree.nodes();
+    int[] targets = new int[nodes.size()];
+    int count = 0;
+    for (int id = 0; id < nodes.size(); id++) {
+      if ((id & 0xFFF) == 0 && Thread.currentThread().isInterrupted()) {
+        throw new CancellationException();
+      }
+      String node = nodes.get(id);
+      if (!node.equals(tree.source()) && node.contains(filter)
+              && (!reachableOnly || tree.distanceTo(node) != ShortestPathTree.UNREACHABLE)) {
+        targets[count++] = id;
+      }
+    }
+    return new LazyRows(count, row -> {
+      String target = nodes.get(targets[row]);
+      StringBuilder text = new StringBuilder();
+      text.append("从 ").append(tree.source())
+              .append(" 到 ").append(target).append(" 的最短路径:");
+      ShortestPaths paths = tree.shortestPaths(target);
+      if (paths == null || !paths.isReachable()) {
+        return text.append("\n没有找到路径").toString();
+      }
+      // 路径条数可能随图的大小指数增长，只还原前几条
+      for (List<String> path : paths.paths(ROW_PATH_LIMIT)) {
+        text.append("\n").append(String.join(" -> ", path))
+                .append(" -> 路径长度为：").append(paths.distance());
+      }
+      BigInteger total = paths.count();
+      if (total.compareTo(BigInteger.valueOf(ROW_PATH_LIMIT)) > 0) {
+        text.append("\n……共").append(total).append("条最短路径");
+      }
+      return text.toString();
+    });
+  }
+
+  /**
+   * 后台执行work，成功后在FX线程上把结果交给onSuccess.
+   */
+  private static <T> Task<T> task(Callable<T> work,
+                                  Consumer<T> onSuccess) {
+    return new Task<>() {
+      @Override
+      protected T call() throws Exception {
+        return work.call();
+      }
+
+      @Override
+      protected void succeeded() {
+        onSuccess.accept(getValue());
+      }
+    };
+  }
+
+  /**
+   * 在线程池中运行任务，进度条和状态栏跟随最近启动的任务.
+   */
+  private void runTask(Task<?> task) {
+    currentTask = task;
+    progressBar.progressProperty().bind(task.progressProperty());
+    statusLabel.textProperty().bind(task.messageProperty());
+    cancelButton.setDisable(false);
+    task.stateProperty().addListener((obs, old, state) -> {
+      if (task != currentTask || !task.isDone()) {
+        return;
+      }
+      progressBar.progressProperty().unbind();
+      statusLabel.textProperty().unbind();
+      cancelButton.setDisable(true);
+      progressBar.setProgress(state == Worker.State.SUCCEEDED ? 1 : 0);
+      if (state == Worker.State.CANCELLED) {
+        statusLabel.setText("已取消");
+      } else if (state == Worker.State.FAILED) {
+        Throwable error = task.getException();
+        String reason = error.getMessage();
+        statusLabel.setText("失败: " + (reason != null ? reason : error.toString()));
+      } else {
+        statusLabel.setText("完成");
+      }
+    });
+    executor.execute(task);
+  }
+
   private void showImageInNewStage(String imagePath) {
     Stage newStage = new Stage();
     newStage.setTitle("生成的图");
@@ -1,18 +1,25 @@
 package org.example.lab1;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 /**
  * 读取文本.
  */
 
 public class GraphUtils {
+  // 每次映射的区域大小，单个MappedByteBuffer不能超过2GB
+  private static final long MAP_CHUNK_SIZE = 256L * 1024 * 1024;
+  // 报告进度的间隔字节数
+  private static final int PROGRESS_STEP = 4 * 1024 * 1024;
+
   /**
   * 读取文本.
   */
@@ -20,17 +27,94 @@ public class GraphUtils {
   public static List<String> readWordsFromFile(File file) {
     // 确保包括对文本的预处理，如下面的示例
     List<String> words = new ArrayList<>();
-    try (Scanner scanner = new Scanner(file, "UTF-8")) {
-      scanner.useDelimiter("\\s+|,\\s*|\\.\\s*"); // 使用空白符或逗号、点后跟空白符作为分隔符
-      while (scanner.hasNext()) {
-        String word = scanner.next().toLowerCase().replaceAll("[^a-zA-Z]", ""); // 清洗非字母字符
-        if (!word.isEmpty()) {
-          words.add(word);
-        }
-      }
+    try {
+      forEachWord(file, words::add);
     } catch (IOException e) {
       System.err.println("Error reading file: " + e.getMessage());
     }
     return words;
   }
+
+  /**
+   * 流式读取文本并直接向图中添加边，不保存单词列表，内存占用只与词汇量有关.
+   *
+   * @param file 文本文件
+   * @param graph 要添加边的图
+   * @return 读到的单词数
+   */
+  public static long loadGraphFromFile(File file, Graph graph) {
+    EdgeFeeder feeder = new EdgeFeeder(graph);
+    try {
+      forEachWord(file, feeder);
+    } catch (IOException e) {
+      System.err.println("Error reading file: " + e.getMessage());
+    }
+    return feeder.count;
+  }
+
+  /**
+   * 按内存映射分块读取文件，把每个清洗后的单词按顺序交给sink.
+   */
+  static void forEachWord(File file, Consumer<String> sink) throws IOException {
+    forEachWord(file, sink, null);
+  }
+
+  /**
+   * 同forEachWord，每处理约4MB就把已处理的字节数交给progress. sink或progress抛出的
+   * 运行时异常（例如任务取消）会中止读取.
+   */
+  static void forEachWord(File file, Consumer<String> sink, LongConsumer progress)
+          throws IOException {
+    long begin = GraphMetrics.begin();
+    long[] tokens = new long[1];
+    if (begin != 0L) {
+      Consumer<String> target = sink;
+      sink = word -> {
+        tokens[0]++;
+        target.accept(word);
+      };
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      CorpusTokenizer tokenizer = new CorpusTokenizer();
+      long size = channel.size();
+      for (long position = 0; position < size; position += MAP_CHUNK_SIZE) {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(MAP_CHUNK_SIZE, size - position));
+        if (progress == null) {
+          tokenizer.feed(buffer, sink);
+          continue;
+        }
+        int end = buffer.limit();
+        for (int from = 0; from < end; from += PROGRESS_STEP) {
+          buffer.limit(Math.min(end, from + PROGRESS_STEP)).position(from);
+          tokenizer.feed(buffer, sink);
+          progress.accept(position + buffer.limit());
+        }
+      }
+      tokenizer.finish(sink);
+    }
+    GraphMetrics.end(GraphMetrics.Operation.INGEST, begin, tokens[0]);
+  }
+
+  /**
+   * 把相邻的单词对作为边加入图中.
+   */
+  private static final class EdgeFeeder implements Consumer<String> {
+    private final Graph graph;
+    private String previous;
+    private long count;
+
+    EdgeFeeder(Graph graph) {
+      this.graph = graph;
+    }
+
+    @Override
+    public void accept(String word) {
+      if (previous != null) {
+        graph.addEdge(previous, word);
+      }
+      previous = word;
+      count++;
+    }
+  }
 }
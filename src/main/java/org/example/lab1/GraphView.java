@@ -0,0 +1,227 @@
+package org.example.lab1;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 图快照上的细节层次（level of detail）视图：保留快照中的一部分边，用于导出和绘制大图.
+ * 边用CSR中的下标表示，过滤只生成新的位集，不复制图.
+ * 过滤可以串联，例如 {@code GraphView.of(g).minWeight(2).topK(3).neighborhood("new", 2)}.
+ */
+
+public final class GraphView {
+  /**
+   * 逐条访问视图中的边.
+   */
+  @FunctionalInterface
+  public interface EdgeVisitor {
+    void visit(int source, int target, int weight) throws IOException;
+  }
+
+  private final GraphSnapshot graph;
+  private final BitSet edges;
+  private final BitSet nodes; // 保留的边的端点，以及显式保留的孤立节点
+
+  private GraphView(GraphSnapshot graph, BitSet edges, BitSet extraNodes) {
+    this.graph = graph;
+    this.edges = edges;
+    this.nodes = extraNodes;
+    for (int u = 0; u < graph.nodeCount(); u++) {
+      for (int i = edges.nextSetBit(graph.offsets[u]); i >= 0 && i < graph.offsets[u + 1];
+           i = edges.nextSetBit(i + 1)) {
+        nodes.set(u);
+        nodes.set(graph.targets[i]);
+      }
+    }
+  }
+
+  /**
+   * 包含全部节点和边的视图.
+   */
+  public static GraphView of(GraphSnapshot graph) {
+    BitSet edges = new BitSet(graph.edgeCount());
+    edges.set(0, graph.edgeCount());
+    BitSet nodes = new BitSet(graph.nodeCount());
+    nodes.set(0, graph.nodeCount());
+    return new GraphView(graph, edges, nodes);
+  }
+
+  public GraphSnapshot graph() {
+    return graph;
+  }
+
+  public int nodeCount() {
+    return nodes.cardinality();
+  }
+
+  public int edgeCount() {
+    return edges.cardinality();
+  }
+
+  /**
+   * 节点是否在视图中.
+   */
+  public boolean containsNode(int node) {
+    return nodes.get(node);
+  }
+
+  /**
+   * 视图中的节点编号，升序.
+   */
+  public int[] nodes() {
+    return nodes.stream().toArray();
+  }
+
+  /**
+   * 视图中没有任何边相连的节点，升序.
+   */
+  public int[] isolatedNodes() {
+    BitSet isolated = (BitSet) nodes.clone();
+    for (int u = nodes.nextSetBit(0); u >= 0; u = nodes.nextSetBit(u + 1)) {
+      int end = graph.offsets[u + 1];
+      for (int i = edges.nextSetBit(graph.offsets[u]); i >= 0 && i < end;
+           i = edges.nextSetBit(i + 1)) {
+        isolated.clear(u);
+        isolated.clear(graph.targets[i]);
+      }
+    }
+    return isolated.stream().toArray();
+  }
+
+  /**
+   * 按源节点编号、再按目标编号的顺序访问所有边.
+   */
+  public void forEachEdge(EdgeVisitor visitor) throws IOException {
+    for (int u = nodes.nextSetBit(0); u >= 0; u = nodes.nextSetBit(u + 1)) {
+      int end = graph.offsets[u + 1];
+      for (int i = edges.nextSetBit(graph.offsets[u]); i >= 0 && i < end;
+           i = edges.nextSetBit(i + 1)) {
+        visitor.visit(u, graph.targets[i], graph.weights[i]);
+      }
+    }
+  }
+
+  /**
+   * 只保留权重不小于minWeight的边.
+   */
+  public GraphView minWeight(int minWeight) {
+    BitSet kept = new BitSet(graph.edgeCount());
+    for (int i = edges.nextSetBit(0); i >= 0; i = edges.nextSetBit(i + 1)) {
+      if (graph.weights[i] >= minWeight) {
+        kept.set(i);
+      }
+    }
+    return new GraphView(graph, kept, new BitSet());
+  }
+
+  /**
+   * 每个节点只保留权重最大的k条出边，权重相同时保留目标编号小的.
+   */
+  public GraphView topK(int k) {
+    BitSet kept = new BitSet(graph.edgeCount());
+    long[] row = new long[16];
+    for (int u = 0; u < graph.nodeCount(); u++) {
+      int count = 0;
+      for (int i = edges.nextSetBit(graph.offsets[u]); i >= 0 && i < graph.offsets[u + 1];
+           i = edges.nextSetBit(i + 1)) {
+        if (count == row.length) {
+          row = Arrays.copyOf(row, count * 2);
+        }
+        // 高位存放取反的权重，排序后权重大、下标小的在前
+        row[count++] = ((long) ~graph.weights[i] << 32) | i;
+      }
+      if (count <= k) {
+        for (int j = 0; j < count; j++) {
+          kept.set((int) row[j]);
+        }
+        continue;
+      }
+      Arrays.sort(row, 0, count);
+      for (int j = 0; j < k; j++) {
+        kept.set((int) row[j]);
+      }
+    }
+    return new GraphView(graph, kept, new BitSet());
+  }
+
+  /**
+   * 只保留全图权重最大的count条边，权重相同时保留下标小的. count不大于0时返回空视图.
+   */
+  public GraphView heaviest(int count) {
+    int total = edgeCount();
+    if (total <= count) {
+      return this;
+    }
+    if (count <= 0) {
+      return new GraphView(graph, new BitSet(), new BitSet());
+    }
+    int[] weights = new int[total];
+    int k = 0;
+    for (int i = edges.nextSetBit(0); i >= 0; i = edges.nextSetBit(i + 1)) {
+      weights[k++] = graph.weights[i];
+    }
+    Arrays.sort(weights);
+    int threshold = weights[total - count];
+    // 严格大于阈值的都保留，等于阈值的按下标顺序补足
+    int equalSlots = count;
+    for (int j = total - count; j < total; j++) {
+      if (weights[j] > threshold) {
+        equalSlots--;
+      }
+    }
+    BitSet kept = new BitSet(graph.edgeCount());
+    for (int i = edges.nextSetBit(0); i >= 0; i = edges.nextSetBit(i + 1)) {
+      int w = graph.weights[i];
+      if (w > threshold || (w == threshold && equalSlots-- > 0)) {
+        kept.set(i);
+      }
+    }
+    return new GraphView(graph, kept, new BitSet());
+  }
+
+  /**
+   * 只保留与focus相距不超过hops步（不论边的方向）的节点之间的边. focus不在视图中时结果为空.
+   */
+  public GraphView neighborhood(String focus, int hops) {
+    int f = graph.id(focus.toLowerCase());
+    BitSet reached = new BitSet(graph.nodeCount());
+    if (f < 0 || !nodes.get(f)) {
+      return new GraphView(graph, new BitSet(), reached);
+    }
+    reached.set(f);
+    BitSet frontier = (BitSet) reached.clone();
+    // 每一步扫描一遍视图中的边，边的任意一端在前沿上就把另一端加入
+    for (int step = 0; step < hops && !frontier.isEmpty(); step++) {
+      BitSet next = new BitSet(graph.nodeCount());
+      for (int u = nodes.nextSetBit(0); u >= 0; u = nodes.nextSetBit(u + 1)) {
+        boolean fromFrontier = frontier.get(u);
+        int end = graph.offsets[u + 1];
+        for (int i = edges.nextSetBit(graph.offsets[u]); i >= 0 && i < end;
+             i = edges.nextSetBit(i + 1)) {
+          int v = graph.targets[i];
+          if (fromFrontier && !reached.get(v)) {
+            next.set(v);
+          } else if (frontier.get(v) && !reached.get(u)) {
+            next.set(u);
+          }
+        }
+      }
+      reached.or(next);
+      frontier = next;
+    }
+    BitSet kept = new BitSet(graph.edgeCount());
+    for (int u = reached.nextSetBit(0); u >= 0; u = reached.nextSetBit(u + 1)) {
+      int end = graph.offsets[u + 1];
+      for (int i = edges.nextSetBit(graph.offsets[u]); i >= 0 && i < end;
+           i = edges.nextSetBit(i + 1)) {
+        if (reached.get(graph.targets[i])) {
+          kept.set(i);
+        }
+      }
+    }
+    BitSet focusNode = new BitSet(graph.nodeCount());
+    focusNode.set(f); // 没有边时也保留focus本身
+    return new GraphView(graph, kept, focusNode);
+  }
+}
@@ -0,0 +1,118 @@
+package org.example.lab1;
+
+import java.util.Arrays;
+
+/**
+ * 以int节点编号为元素、int为优先级的二叉最小堆，支持decrease-key.
+ */
+
+final class IndexedMinHeap {
+  private final int[] heap; // 堆数组，存放节点编号
+  private final int[] pos; // 节点在堆中的位置，-1表示不在堆中
+  private final int[] keys; // 节点当前的优先级
+  private int size;
+
+  IndexedMinHeap(int capacity) {
+    heap = new int[capacity];
+    pos = new int[capacity];
+    keys = new int[capacity];
+    Arrays.fill(pos, -1);
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  boolean contains(int node) {
+    return pos[node] >= 0;
+  }
+
+  /**
+   * 堆顶元素的优先级，堆为空时返回Integer.MAX_VALUE.
+   */
+  int peekKey() {
+    return size == 0 ? Integer.MAX_VALUE : keys[heap[0]];
+  }
+
+  /**
+   * 插入节点，若节点已在堆中且新优先级更小则执行decrease-key.
+   */
+  void insertOrDecrease(int node, int key) {
+    int i = pos[node];
+    if (i < 0) {
+      i = size++;
+      heap[i] = node;
+      pos[node] = i;
+      keys[node] = key;
+      siftUp(i);
+    } else if (key < keys[node]) {
+      keys[node] = key;
+      siftUp(i);
+    }
+  }
+
+  /**
+   * 弹出优先级最小的节点.
+   */
+  int poll() {
+    int top = heap[0];
+    pos[top] = -1;
+    size--;
+    if (size > 0) {
+      int last = heap[size];
+      heap[0] = last;
+      pos[last] = 0;
+      siftDown(0);
+    }
+    return top;
+  }
+
+  /**
+   * 清空堆，只触碰仍在堆中的节点，便于复用.
+   */
+  void clear() {
+    for (int i = 0; i < size; i++) {
+      pos[heap[i]] = -1;
+    }
+    size = 0;
+  }
+
+  private void siftUp(int i) {
+    int node = heap[i];
+    int key = keys[node];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      int p = heap[parent];
+      if (keys[p] <= key) {
+        break;
+      }
+      heap[i] = p;
+      pos[p] = i;
+      i = parent;
+    }
+    heap[i] = node;
+    pos[node] = i;
+  }
+
+  private void siftDown(int i) {
+    int node = heap[i];
+    int key = keys[node];
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      int right = child + 1;
+      if (right < size && keys[heap[right]] < keys[heap[child]]) {
+        child = right;
+      }
+      int c = heap[child];
+      if (key <= keys[c]) {
+        break;
+      }
+      heap[i] = c;
+      pos[c] = i;
+      i = child;
+    }
+    heap[i] = node;
+    pos[node] = i;
+  }
+}
@@ -0,0 +1,77 @@
+package org.example.lab1;
+
+/**
+ * 非负int键到int值的开放寻址散列表（线性探测），不装箱.
+ * 用于只涉及少量节点的查询结果，避免按节点总数分配数组.
+ */
+
+final class IntIntMap {
+  private int[] keys; // 键 + 1，0表示空槽
+  private int[] values;
+  private int size;
+
+  IntIntMap(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+    keys = new int[capacity];
+    values = new int[capacity];
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * 键对应的值，不存在时返回missing.
+   */
+  int get(int key, int missing) {
+    int mask = keys.length - 1;
+    for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+      int k = keys[slot];
+      if (k == 0) {
+        return missing;
+      }
+      if (k == key + 1) {
+        return values[slot];
+      }
+    }
+  }
+
+  void put(int key, int value) {
+    if (2 * (size + 1) > keys.length) {
+      grow();
+    }
+    int mask = keys.length - 1;
+    int slot = slot(key, mask);
+    while (keys[slot] != 0 && keys[slot] != key + 1) {
+      slot = (slot + 1) & mask;
+    }
+    if (keys[slot] == 0) {
+      keys[slot] = key + 1;
+      size++;
+    }
+    values[slot] = value;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new int[oldKeys.length * 2];
+    values = new int[oldKeys.length * 2];
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int slot = slot(oldKeys[i] - 1, mask);
+        while (keys[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  private static int slot(int key, int mask) {
+    int h = key * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+}
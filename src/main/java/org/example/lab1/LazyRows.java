@@ -0,0 +1,33 @@
+package org.example.lab1;
+
+import java.util.function.IntFunction;
+import javafx.collections.ObservableListBase;
+
+/**
+ * 只读的按需生成的列表，给ListView使用. ListView只为可见的单元格调用get，
+ * 其余的行不会被生成，几十万行的结果也只占用一个行号映射.
+ * 内容不会变化，需要换一组结果（例如过滤后）时创建新的列表.
+ */
+
+final class LazyRows extends ObservableListBase<String> {
+  private final int size;
+  private final IntFunction<String> row;
+
+  LazyRows(int size, IntFunction<String> row) {
+    this.size = size;
+    this.row = row;
+  }
+
+  @Override
+  public String get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return row.apply(index);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+}
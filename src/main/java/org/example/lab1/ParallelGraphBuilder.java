@@ -0,0 +1,228 @@
+package org.example.lab1;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * 并行分片构建有向图.
+ * 语料按单词边界切成若干片，每个线程在本地统计边的次数，
+ * 跨越分片边界的单词对在合并时补上，结果与顺序执行createGraph完全一致.
+ */
+
+public final class ParallelGraphBuilder {
+  // 单个分片的最大字节数，保证每片都能一次映射
+  private static final long MAX_SHARD_BYTES = 256L * 1024 * 1024;
+
+  private ParallelGraphBuilder() {
+  }
+
+  /**
+   * 并行版本的Graph.createGraph.
+   *
+   * @param graph 要添加边的图
+   * @param words 单词列表
+   * @param parallelism 线程数，至少为1
+   */
+  public static void createGraph(Graph graph, List<String> words, int parallelism) {
+    checkParallelism(parallelism);
+    int pairs = words.size() - 1;
+    if (pairs <= 0) {
+      return;
+    }
+    long begin = GraphMetrics.begin();
+    // 第i个单词对是(words[i], words[i + 1])，每个分片负责一段连续的单词对，边界对不会遗漏
+    int shards = Math.min(parallelism, pairs);
+    List<Callable<Shard>> tasks = new ArrayList<>();
+    for (int k = 0; k < shards; k++) {
+      int from = (int) ((long) pairs * k / shards);
+      int to = (int) ((long) pairs * (k + 1) / shards);
+      tasks.add(() -> {
+        Shard shard = new Shard();
+        for (int i = from; i < to; i++) {
+          shard.count(words.get(i).toLowerCase(), words.get(i + 1).toLowerCase());
+        }
+        return shard;
+      });
+    }
+    merge(graph, run(tasks, parallelism), false);
+    GraphMetrics.end(GraphMetrics.Operation.EDGE_INSERT, begin, pairs);
+  }
+
+  /**
+   * 并行版本的GraphUtils.loadGraphFromFile：文件按字节切片，切点移到下一个分隔符处.
+   *
+   * @return 读到的单词数
+   */
+  public static long loadGraphFromFile(File file, Graph graph, int parallelism) {
+    return loadGraphFromFiles(List.of(file), graph, parallelism);
+  }
+
+  /**
+   * 并行读取多个文件，每个文件是独立的语料，文件之间不产生边.
+   *
+   * @return 读到的单词数
+   */
+  public static long loadGraphFromFiles(List<File> files, Graph graph, int parallelism) {
+    checkParallelism(parallelism);
+    long begin = GraphMetrics.begin();
+    List<FileChannel> channels = new ArrayList<>();
+    try {
+      List<Callable<Shard>> tasks = new ArrayList<>();
+      for (File file : files) {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        channels.add(channel);
+        long size = channel.size();
+        long shardSize = Math.min(MAX_SHARD_BYTES,
+                Math.max(1, (size + parallelism - 1) / parallelism));
+        long start = 0;
+        boolean first = true;
+        while (start < size) {
+          long end = nextBoundary(channel, Math.min(size, start + shardSize), size);
+          long from = start;
+          boolean fileStart = first;
+          tasks.add(() -> tokenize(channel, from, end, fileStart));
+          start = end;
+          first = false;
+        }
+      }
+      long tokens = merge(graph, run(tasks, parallelism), true);
+      GraphMetrics.end(GraphMetrics.Operation.INGEST, begin, tokens);
+      return tokens;
+    } catch (IOException e) {
+      System.err.println("Error reading file: " + e.getMessage());
+      return 0;
+    } finally {
+      for (FileChannel channel : channels) {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          System.err.println("Error closing file: " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  private static void checkParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+  }
+
+  /**
+   * 从position开始找到第一个分隔符的位置，保证切点不会落在单词中间.
+   */
+  private static long nextBoundary(FileChannel channel, long position, long size)
+          throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(4096);
+    while (position < size) {
+      buf.clear();
+      int n = channel.read(buf, position);
+      if (n <= 0) {
+        return size;
+      }
+      for (int i = 0; i < n; i++) {
+        if (CorpusTokenizer.isDelimiter(buf.get(i))) {
+          return position + i;
+        }
+      }
+      position += n;
+    }
+    return size;
+  }
+
+  private static Shard tokenize(FileChannel channel, long from, long to, boolean fileStart)
+          throws IOException {
+    Shard shard = new Shard();
+    shard.fileStart = fileStart;
+    CorpusTokenizer tokenizer = new CorpusTokenizer();
+    tokenizer.feed(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from), shard);
+    tokenizer.finish(shard);
+    return shard;
+  }
+
+  private static List<Shard> run(List<Callable<Shard>> tasks, int parallelism) {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+    try {
+      List<Shard> shards = new ArrayList<>();
+      for (Future<Shard> future : executor.invokeAll(tasks)) {
+        shards.add(future.get());
+      }
+      return shards;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Graph build interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Graph build failed", e.getCause());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * 按分片顺序合并局部边计数，并补上相邻分片之间跨边界的单词对.
+   * 单词按分片顺序、分片内按首次出现的顺序编号，与顺序构建时的节点编号一致；
+   * 合并结果一次加入图中，只发出一个修改事件.
+   */
+  private static long merge(Graph graph, List<Shard> shards, boolean linkShards) {
+    GraphBuilder total = new GraphBuilder();
+    long tokens = 0;
+    String previous = null; // 前面分片的最后一个单词
+    for (Shard shard : shards) {
+      if (shard.fileStart) {
+        previous = null;
+      }
+      if (linkShards && previous != null && shard.first != null) {
+        total.addEdge(previous, shard.first, 1);
+      }
+      if (shard.last != null) {
+        previous = shard.last;
+      }
+      GraphBuilder edges = shard.edges;
+      for (int id = 0; id < edges.nodeCount(); id++) {
+        total.addWord(edges.word(id));
+      }
+      edges.forEachEdge((source, target, count) ->
+              total.addEdge(edges.word(source), edges.word(target), count));
+      tokens += shard.tokens;
+    }
+    graph.addEdges(total);
+    return tokens;
+  }
+
+  /**
+   * 一个分片的局部结果：边计数、首尾单词和单词数.
+   */
+  private static final class Shard implements Consumer<String> {
+    private final GraphBuilder edges = new GraphBuilder();
+    private boolean fileStart;
+    private String first;
+    private String last;
+    private long tokens;
+
+    @Override
+    public void accept(String word) {
+      if (last != null) {
+        count(last, word);
+      } else {
+        first = word;
+      }
+      last = word;
+      tokens++;
+    }
+
+    void count(String source, String destination) {
+      edges.addEdge(source, destination, 1);
+    }
+  }
+}
@@ -0,0 +1,362 @@
+package org.example.lab1;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * 点对点最短路径查询，只访问起点和终点附近的节点，结果包含所有等长的最短路径.
+ * 双向Dijkstra同时从起点沿出边、从终点沿入边搜索；ALT是以地标距离的三角不等式为下界的A*，
+ * 地标距离在首次使用ALT时对每个快照计算一次. 两种搜索都先用ReachabilityIndex在O(1)时间内排除
+ * 不可达的点对，搜索中也跳过可达性标签表明不在任何起点到终点路径上的节点.
+ * 搜索状态放在池中复用（虚拟线程不适合用ThreadLocal），查询之间只重置访问过的节点.
+ */
+
+public final class PointToPointSearch {
+  public static final int DEFAULT_LANDMARKS = 8;
+  private static final int UNREACHABLE = ShortestPathTree.UNREACHABLE;
+  private static final long NONE = Long.MAX_VALUE; // 还没有找到路径
+
+  private final GraphSnapshot graph;
+  private final int landmarkCount;
+  private final ConcurrentLinkedDeque<Searcher> idle = new ConcurrentLinkedDeque<>();
+  private volatile Landmarks landmarks;
+
+  PointToPointSearch(GraphSnapshot graph, int landmarkCount) {
+    this.graph = graph;
+    this.landmarkCount = landmarkCount;
+  }
+
+  /**
+   * 双向Dijkstra，单词不在图中时返回null.
+   */
+  public ShortestPaths bidirectional(String source, String target) {
+    int s = graph.id(source.toLowerCase());
+    int t = graph.id(target.toLowerCase());
+    return s < 0 || t < 0 ? null : bidirectional(s, t);
+  }
+
+  /**
+   * 双向Dijkstra. 两个方向轮流扩展堆顶较小的一侧，每次松弛时用另一侧的距离更新最短长度best，
+   * 直到两侧堆顶之和大于best. 此时最短路径上的每个节点至少在一侧出堆，
+   * 正向出堆的节点距离为正向距离，只在反向出堆的取best减去反向距离，所有等长路径都能还原.
+   */
+  public ShortestPaths bidirectional(int s, int t) {
+    ReachabilityIndex reach = graph.reachability();
+    if (!reach.mayReach(s, t)) {
+      return new ShortestPaths(graph, s, t, new IntIntMap(0));
+    }
+    long begin = GraphMetrics.begin();
+    Searcher q = acquire();
+    final int[] offsets = graph.offsets;
+    final int[] targets = graph.targets;
+    final int[] weights = graph.weights;
+    final GraphSnapshot.Reverse reverse = graph.reverse();
+    long best = s == t ? 0 : NONE;
+    int settled = 0;
+    q.touch(s);
+    q.forward[s] = 0;
+    q.forwardHeap.insertOrDecrease(s, 0);
+    q.touch(t);
+    q.backward[t] = 0;
+    q.backwardHeap.insertOrDecrease(t, 0);
+    while (!q.forwardHeap.isEmpty() && !q.backwardHeap.isEmpty()) {
+      // 一侧搜索完毕时，该侧能到达的节点都已出堆，可以结束
+      int topF = q.forwardHeap.peekKey();
+      int topB = q.backwardHeap.peekKey();
+      if ((long) topF + topB > best) {
+        break;
+      }
+      settled++;
+      if (topF <= topB) {
+        int u = q.forwardHeap.poll();
+        q.state[u] |= Searcher.SETTLED_FORWARD;
+        best = relax(q, u, offsets, targets, weights, q.forward, q.forwardHeap, q.backward,
+                best, reach, t, true);
+      } else {
+        int u = q.backwardHeap.poll();
+        q.state[u] |= Searcher.SETTLED_BACKWARD;
+        best = relax(q, u, reverse.offsets, reverse.sources, reverse.weights, q.backward,
+                q.backwardHeap, q.forward, best, reach, s, false);
+      }
+    }
+    IntIntMap dist = new IntIntMap(settled);
+    if (best != NONE) {
+      for (int i = 0; i < q.touchedCount; i++) {
+        int v = q.touched[i];
+        if ((q.state[v] & Searcher.SETTLED_FORWARD) != 0) {
+          dist.put(v, q.forward[v]);
+        } else if ((q.state[v] & Searcher.SETTLED_BACKWARD) != 0 && q.backward[v] <= best) {
+          dist.put(v, (int) (best - q.backward[v]));
+        }
+      }
+    }
+    release(q);
+    GraphMetrics.end(GraphMetrics.Operation.SHORTEST_PATH, begin, settled);
+    return new ShortestPaths(graph, s, t, dist);
+  }
+
+  /**
+   * 松弛u在一个方向上的边，返回更新后的best. 正向时跳过到不了end的节点，反向时跳过end到不了的节点.
+   */
+  private static long relax(Searcher q, int u, int[] offsets, int[] targets, int[] weights,
+                            int[] dist, IndexedMinHeap heap, int[] other, long best,
+                            ReachabilityIndex reach, int end, boolean forward) {
+    int du = dist[u];
+    for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+      int v = targets[i];
+      if (forward ? !reach.mayReach(v, end) : !reach.mayReach(end, v)) {
+        continue;
+      }
+      long nd = (long) du + weights[i];
+      if (nd < dist[v]) {
+        q.touch(v);
+        dist[v] = (int) nd;
+        heap.insertOrDecrease(v, (int) nd);
+      }
+      if (other[v] != UNREACHABLE && nd + other[v] < best) {
+        best = nd + other[v];
+      }
+    }
+    return best;
+  }
+
+  /**
+   * ALT（A*、地标、三角不等式），单词不在图中时返回null.
+   */
+  public ShortestPaths alt(String source, String target) {
+    int s = graph.id(source.toLowerCase());
+    int t = graph.id(target.toLowerCase());
+    return s < 0 || t < 0 ? null : alt(s, t);
+  }
+
+  /**
+   * ALT. 按距离加上到终点距离的下界排序扩展节点，终点出堆后继续扩展到堆顶大于最短长度为止，
+   * 这样所有最短路径上的节点都已出堆，等长路径都能还原. 地标证明无法到达终点的节点直接跳过.
+   */
+  public ShortestPaths alt(int s, int t) {
+    ReachabilityIndex reach = graph.reachability();
+    if (!reach.mayReach(s, t)) {
+      return new ShortestPaths(graph, s, t, new IntIntMap(0));
+    }
+    Landmarks marks = landmarks();
+    long begin = GraphMetrics.begin();
+    Searcher q = acquire();
+    final int[] offsets = graph.offsets;
+    final int[] targets = graph.targets;
+    final int[] weights = graph.weights;
+    final int[] dist = q.forward;
+    final int[] potential = q.backward; // 到终点距离的下界，按需计算
+    final IndexedMinHeap heap = q.forwardHeap;
+    long best = NONE;
+    int settled = 0;
+    q.touch(s);
+    potential[s] = marks.lowerBound(s, t);
+    if (potential[s] != UNREACHABLE) {
+      dist[s] = 0;
+      heap.insertOrDecrease(s, potential[s]);
+    }
+    while (!heap.isEmpty() && heap.peekKey() <= best) {
+      int u = heap.poll();
+      q.state[u] |= Searcher.SETTLED_FORWARD;
+      settled++;
+      int du = dist[u];
+      if (u == t) {
+        best = du;
+      }
+      for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+        int v = targets[i];
+        long nd = (long) du + weights[i];
+        if (nd >= dist[v]) {
+          continue;
+        }
+        if ((q.state[v] & Searcher.TOUCHED) == 0) {
+          q.touch(v);
+          potential[v] = reach.mayReach(v, t) ? marks.lowerBound(v, t) : UNREACHABLE;
+        }
+        if (potential[v] == UNREACHABLE) {
+          continue;
+        }
+        dist[v] = (int) nd;
+        heap.insertOrDecrease(v, (int) Math.min(nd + potential[v], UNREACHABLE - 1));
+      }
+    }
+    IntIntMap result = new IntIntMap(settled);
+    if (best != NONE) {
+      for (int i = 0; i < q.touchedCount; i++) {
+        int v = q.touched[i];
+        if ((q.state[v] & Searcher.SETTLED_FORWARD) != 0) {
+          result.put(v, dist[v]);
+        }
+      }
+    }
+    release(q);
+    GraphMetrics.end(GraphMetrics.Operation.SHORTEST_PATH, begin, settled);
+    return new ShortestPaths(graph, s, t, result);
+  }
+
+  private Searcher acquire() {
+    Searcher q = idle.poll();
+    return q != null ? q : new Searcher(graph.nodeCount());
+  }
+
+  private void release(Searcher q) {
+    q.reset();
+    idle.push(q);
+  }
+
+  /**
+   * 地标数量，首次调用时计算地标距离.
+   */
+  public int landmarkCount() {
+    return landmarks().count();
+  }
+
+  private Landmarks landmarks() {
+    Landmarks marks = landmarks;
+    if (marks == null) {
+      synchronized (this) {
+        marks = landmarks;
+        if (marks == null) {
+          marks = Landmarks.select(graph, landmarkCount);
+          landmarks = marks;
+        }
+      }
+    }
+    return marks;
+  }
+
+  /**
+   * 地标到各节点（fromLandmark）和各节点到地标（toLandmark）的距离.
+   */
+  private record Landmarks(int[][] fromLandmark, int[][] toLandmark) {
+    int count() {
+      return fromLandmark.length;
+    }
+
+    /**
+     * 按最远点策略选择地标：第一个是度数最大的节点，之后每次选择离已选地标最远的有边节点
+     * （与所有地标都不连通的优先）.
+     */
+    static Landmarks select(GraphSnapshot graph, int count) {
+      int n = graph.nodeCount();
+      GraphSnapshot.Reverse reverse = graph.reverse();
+      long[] nearest = new long[n]; // 到已选地标的最近距离（两个方向取小）
+      Arrays.fill(nearest, Long.MAX_VALUE);
+      int[][] from = new int[count][];
+      int[][] to = new int[count][];
+      int chosen = 0;
+      while (chosen < count) {
+        int landmark = -1;
+        long score = 0;
+        for (int v = 0; v < n; v++) {
+          int degree = graph.outDegree(v) + reverse.offsets[v + 1] - reverse.offsets[v];
+          if (degree == 0) {
+            continue;
+          }
+          long s = chosen == 0 ? degree : nearest[v];
+          if (s > score) {
+            landmark = v;
+            score = s;
+          }
+        }
+        if (landmark < 0) {
+          break; // 没有边，或剩下的节点都已是地标
+        }
+        from[chosen] = distances(graph.offsets, graph.targets, graph.weights, n, landmark);
+        to[chosen] = distances(reverse.offsets, reverse.sources, reverse.weights, n, landmark);
+        for (int v = 0; v < n; v++) {
+          long d = Math.min(from[chosen][v], to[chosen][v]);
+          if (d != UNREACHABLE && d < nearest[v]) {
+            nearest[v] = d;
+          }
+        }
+        chosen++;
+      }
+      return new Landmarks(Arrays.copyOf(from, chosen), Arrays.copyOf(to, chosen));
+    }
+
+    private static int[] distances(int[] offsets, int[] targets, int[] weights, int n,
+                                   int source) {
+      int[] dist = new int[n];
+      Arrays.fill(dist, UNREACHABLE);
+      dist[source] = 0;
+      IndexedMinHeap heap = new IndexedMinHeap(n);
+      heap.insertOrDecrease(source, 0);
+      ShortestPathTree.propagate(offsets, targets, weights, dist, heap);
+      return dist;
+    }
+
+    /**
+     * v到t的距离下界；能证明v无法到达t时返回UNREACHABLE.
+     */
+    int lowerBound(int v, int t) {
+      int bound = 0;
+      for (int k = 0; k < fromLandmark.length; k++) {
+        int[] from = fromLandmark[k];
+        int[] to = toLandmark[k];
+        if (from[v] != UNREACHABLE) {
+          if (from[t] == UNREACHABLE) {
+            return UNREACHABLE; // 地标能到v却到不了t
+          }
+          bound = Math.max(bound, from[t] - from[v]);
+        }
+        if (to[t] != UNREACHABLE) {
+          if (to[v] == UNREACHABLE) {
+            return UNREACHABLE; // t能到地标而v不能
+          }
+          bound = Math.max(bound, to[v] - to[t]);
+        }
+      }
+      return bound;
+    }
+  }
+
+  /**
+   * 一次查询的搜索状态，数组按节点总数分配一次，查询结束后只重置touched中的节点.
+   */
+  private static final class Searcher {
+    static final byte TOUCHED = 1;
+    static final byte SETTLED_FORWARD = 2;
+    static final byte SETTLED_BACKWARD = 4;
+
+    final int[] forward;
+    final int[] backward;
+    final byte[] state;
+    final IndexedMinHeap forwardHeap;
+    final IndexedMinHeap backwardHeap;
+    int[] touched = new int[64];
+    int touchedCount;
+
+    Searcher(int n) {
+      forward = new int[n];
+      backward = new int[n];
+      state = new byte[n];
+      forwardHeap = new IndexedMinHeap(n);
+      backwardHeap = new IndexedMinHeap(n);
+      Arrays.fill(forward, UNREACHABLE);
+      Arrays.fill(backward, UNREACHABLE);
+    }
+
+    void touch(int v) {
+      if (state[v] == 0) {
+        state[v] = TOUCHED;
+        if (touchedCount == touched.length) {
+          touched = Arrays.copyOf(touched, touchedCount * 2);
+        }
+        touched[touchedCount++] = v;
+      }
+    }
+
+    void reset() {
+      for (int i = 0; i < touchedCount; i++) {
+        int v = touched[i];
+        forward[v] = UNREACHABLE;
+        backward[v] = UNREACHABLE;
+        state[v] = 0;
+      }
+      touchedCount = 0;
+      forwardHeap.clear();
+      backwardHeap.clear();
+    }
+  }
+}
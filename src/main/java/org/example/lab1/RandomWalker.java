@@ -0,0 +1,229 @@
+package org.example.lab1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * 批量加权随机游走（DeepWalk风格）.
+ * 每个节点的出边预先建立别名表（alias table），按边权重O(1)采样下一步；
+ * 走到没有出边的节点、重复经过同一条边或达到最大长度时结束.
+ * 游走按固定大小分块并行生成，每块使用由种子派生的独立随机数，结果与线程数无关.
+ */
+
+public final class RandomWalker {
+  // 每个并行块包含的游走数
+  private static final int CHUNK_WALKS = 1024;
+
+  /**
+   * 接收一次游走的结果. nodes[0, length)是按顺序经过的节点编号，
+   * 数组会被同一线程复用，需要保留时请复制；多个线程会并发调用.
+   */
+  public interface WalkConsumer {
+    void accept(int[] nodes, int length);
+  }
+
+  private final GraphSnapshot graph;
+  private final double[] probability; // 与CSR的边对齐，行内第i个槽位保留自身的概率
+  private final int[] alias; // 与CSR的边对齐，行内的备选槽位
+  private final int[] startNodes; // 有出边的节点
+
+  RandomWalker(GraphSnapshot graph) {
+    this.graph = graph;
+    int n = graph.nodeCount();
+    int edges = graph.edgeCount();
+    probability = new double[edges];
+    alias = new int[edges];
+    int[] small = new int[edges];
+    int[] large = new int[edges];
+    double[] scaled = new double[edges];
+    int starts = 0;
+    for (int u = 0; u < n; u++) {
+      int from = graph.offsets[u];
+      int degree = graph.offsets[u + 1] - from;
+      if (degree > 0) {
+        starts++;
+        buildAlias(from, degree, small, large, scaled);
+      }
+    }
+    startNodes = new int[starts];
+    for (int u = 0, k = 0; u < n; u++) {
+      if (graph.outDegree(u) > 0) {
+        startNodes[k++] = u;
+      }
+    }
+  }
+
+  /**
+   * Vose方法构建一行的别名表.
+   */
+  private void buildAlias(int from, int degree, int[] small, int[] large, double[] scaled) {
+    long total = 0;
+    for (int i = 0; i < degree; i++) {
+      total += graph.weights[from + i];
+    }
+    int smallSize = 0;
+    int largeSize = 0;
+    for (int i = 0; i < degree; i++) {
+      // 权重全为0时按均匀分布处理
+      scaled[i] = total == 0 ? 1.0 : (double) graph.weights[from + i] * degree / total;
+      if (scaled[i] < 1.0) {
+        small[smallSize++] = i;
+      } else {
+        large[largeSize++] = i;
+      }
+    }
+    while (smallSize > 0 && largeSize > 0) {
+      int s = small[--smallSize];
+      int l = large[--largeSize];
+      probability[from + s] = scaled[s];
+      alias[from + s] = l;
+      scaled[l] = scaled[l] + scaled[s] - 1.0;
+      if (scaled[l] < 1.0) {
+        small[smallSize++] = l;
+      } else {
+        large[largeSize++] = l;
+      }
+    }
+    while (largeSize > 0) {
+      probability[from + large[--largeSize]] = 1.0;
+    }
+    while (smallSize > 0) {
+      probability[from + small[--smallSize]] = 1.0; // 浮点误差留下的槽位
+    }
+  }
+
+  /**
+   * 在有出边的节点中均匀选择一个作为起点，没有时返回-1.
+   */
+  int randomStart(Random random) {
+    return startNodes.length == 0 ? -1 : startNodes[random.nextInt(startNodes.length)];
+  }
+
+  /**
+   * 按权重从节点u的出边中采样一条，返回边的下标.
+   */
+  int sampleEdge(int u, SplittableRandom random) {
+    int from = graph.offsets[u];
+    int i = random.nextInt(graph.offsets[u + 1] - from);
+    return random.nextDouble() < probability[from + i] ? from + i : from + alias[from + i];
+  }
+
+  /**
+   * 并行生成count条从随机节点出发的游走.
+   *
+   * @param count 游走条数
+   * @param maxLength 每条游走最多经过的节点数，0表示不限
+   * @param seed 随机数种子，相同种子得到相同结果
+   * @param consumer 接收每条游走，需要线程安全
+   */
+  public void walk(int count, int maxLength, long seed, WalkConsumer consumer) {
+    if (startNodes.length == 0 || count <= 0) {
+      return;
+    }
+    int chunks = (count + CHUNK_WALKS - 1) / CHUNK_WALKS;
+    SplittableRandom master = new SplittableRandom(seed);
+    long[] chunkSeeds = new long[chunks];
+    for (int c = 0; c < chunks; c++) {
+      chunkSeeds[c] = master.nextLong();
+    }
+    long begin = GraphMetrics.begin();
+    long steps = IntStream.range(0, chunks).parallel().mapToLong(c -> {
+      SplittableRandom random = new SplittableRandom(chunkSeeds[c]);
+      Walk walk = new Walk(maxLength);
+      int end = Math.min(count, (c + 1) * CHUNK_WALKS);
+      long chunkSteps = 0;
+      for (int w = c * CHUNK_WALKS; w < end; w++) {
+        int start = startNodes[random.nextInt(startNodes.length)];
+        int length = walk.run(start, random);
+        consumer.accept(walk.nodes, length);
+        chunkSteps += length - 1;
+      }
+      return chunkSteps;
+    }).sum();
+    GraphMetrics.end(GraphMetrics.Operation.RANDOM_WALK, begin, steps);
+  }
+
+  /**
+   * 生成count条游走并以单词列表返回，适合数量不大的场景.
+   */
+  public List<List<String>> walks(int count, int maxLength, long seed) {
+    List<List<String>> walks = Collections.synchronizedList(new ArrayList<>());
+    walk(count, maxLength, seed, (nodes, length) -> {
+      List<String> path = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        path.add(graph.word(nodes[i]));
+      }
+      walks.add(path);
+    });
+    return walks;
+  }
+
+  /**
+   * 单个线程的游走状态. 已访问的边记录在以边下标为键的开放寻址int集合中，
+   * 集合大小只与游走长度有关.
+   */
+  private final class Walk {
+    private final int maxLength;
+    private int[] nodes = new int[64];
+    private int[] visited = new int[128]; // 存放边下标 + 1，0表示空槽
+    private int visitedCount;
+
+    Walk(int maxLength) {
+      this.maxLength = maxLength <= 0 ? Integer.MAX_VALUE : maxLength;
+    }
+
+    int run(int start, SplittableRandom random) {
+      if (visitedCount > 0) {
+        Arrays.fill(visited, 0);
+        visitedCount = 0;
+      }
+      int length = 0;
+      nodes[length++] = start;
+      int current = start;
+      while (length < maxLength && graph.outDegree(current) > 0) {
+        int edge = sampleEdge(current, random);
+        int next = graph.targets[edge];
+        if (length == nodes.length) {
+          nodes = Arrays.copyOf(nodes, length * 2);
+        }
+        nodes[length++] = next;
+        if (!markVisited(edge)) {
+          break; // 发现重复边，游走结束
+        }
+        current = next;
+      }
+      return length;
+    }
+
+    /**
+     * 记录经过的边，已经经过时返回false.
+     */
+    private boolean markVisited(int edge) {
+      int mask = visited.length - 1;
+      int i = (edge * 0x9E3779B9) >>> 7 & mask;
+      while (visited[i] != 0) {
+        if (visited[i] == edge + 1) {
+          return false;
+        }
+        i = (i + 1) & mask;
+      }
+      visited[i] = edge + 1;
+      if (++visitedCount * 2 > visited.length) {
+        int[] old = visited;
+        visited = new int[old.length * 2];
+        visitedCount = 0;
+        for (int e : old) {
+          if (e != 0) {
+            markVisited(e - 1);
+          }
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,288 @@
+package org.example.lab1;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 可达性索引. 用迭代式Tarjan算法求强连通分量并缩成DAG，再为DAG做几次随机顺序的深度优先遍历，
+ * 给每个分量打上区间标签（GRAIL）：u能到达v时，v的每个区间都包含在u的对应区间内.
+ * Tarjan按逆拓扑序给分量编号，u能到达v时u的分量编号不小于v的.
+ * 这两个条件在O(1)时间内排除大部分不可达的点对；不能排除时在DAG上做用标签剪枝的搜索得到准确结果.
+ */
+
+public final class ReachabilityIndex {
+  static final int DEFAULT_TRAVERSALS = 3;
+
+  private final GraphSnapshot graph;
+  private final int[] component; // 节点所在的分量，按逆拓扑序编号（汇点分量在前）
+  private final int componentCount;
+  private final int[] dagOffsets; // 缩点DAG的CSR，边去重
+  private final int[] dagTargets;
+  private final int traversals;
+  private final int[] low; // 第i次遍历的标签为[low[i * c + x], rank[i * c + x]]
+  private final int[] rank;
+
+  ReachabilityIndex(GraphSnapshot graph, int traversals, long seed) {
+    this.graph = graph;
+    this.traversals = traversals;
+    int n = graph.nodeCount();
+    component = new int[n];
+    componentCount = tarjan(graph, component);
+    int c = componentCount;
+
+    // 缩点：按分量分组节点，去掉分量内部的边和重复的边
+    int[] memberOffsets = new int[c + 1];
+    for (int v = 0; v < n; v++) {
+      memberOffsets[component[v] + 1]++;
+    }
+    for (int x = 0; x < c; x++) {
+      memberOffsets[x + 1] += memberOffsets[x];
+    }
+    int[] members = new int[n];
+    int[] fill = Arrays.copyOf(memberOffsets, c);
+    for (int v = 0; v < n; v++) {
+      members[fill[component[v]]++] = v;
+    }
+    int[] lastSeen = new int[c];
+    Arrays.fill(lastSeen, -1);
+    dagOffsets = new int[c + 1];
+    int[] targets = new int[16];
+    int edges = 0;
+    for (int x = 0; x < c; x++) {
+      for (int m = memberOffsets[x]; m < memberOffsets[x + 1]; m++) {
+        int u = members[m];
+        for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+          int y = component[graph.targets[i]];
+          if (y != x && lastSeen[y] != x) {
+            lastSeen[y] = x;
+            if (edges == targets.length) {
+              targets = Arrays.copyOf(targets, edges * 2);
+            }
+            targets[edges++] = y;
+          }
+        }
+      }
+      dagOffsets[x + 1] = edges;
+    }
+    dagTargets = Arrays.copyOf(targets, edges);
+
+    low = new int[traversals * c];
+    rank = new int[traversals * c];
+    SplittableRandom random = new SplittableRandom(seed);
+    for (int k = 0; k < traversals; k++) {
+      label(k, random);
+    }
+  }
+
+  /**
+   * 强连通分量的数量.
+   */
+  public int componentCount() {
+    return componentCount;
+  }
+
+  /**
+   * 节点所在的强连通分量.
+   */
+  public int component(int node) {
+    return component[node];
+  }
+
+  /**
+   * 快速判断：返回false时u一定不能到达v，返回true时可能可以. 代价为O(遍历次数).
+   */
+  public boolean mayReach(int u, int v) {
+    return mayReachComponent(component[u], component[v]);
+  }
+
+  /**
+   * u是否能到达v（每个节点都能到达自身）. 大多数不可达的点对由mayReach直接排除，
+   * 其余情况在缩点DAG上搜索，跳过标签表明到不了v的分量.
+   */
+  public boolean reachable(int u, int v) {
+    int from = component[u];
+    int to = component[v];
+    if (from == to) {
+      return true;
+    }
+    if (!mayReachComponent(from, to)) {
+      return false;
+    }
+    IntIntMap visited = new IntIntMap(16);
+    int[] stack = new int[16];
+    int top = 0;
+    stack[top++] = from;
+    visited.put(from, 0);
+    while (top > 0) {
+      int x = stack[--top];
+      for (int i = dagOffsets[x]; i < dagOffsets[x + 1]; i++) {
+        int y = dagTargets[i];
+        if (y == to) {
+          return true;
+        }
+        if (visited.get(y, -1) < 0 && mayReachComponent(y, to)) {
+          visited.put(y, 0);
+          if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+          }
+          stack[top++] = y;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 同reachable(int, int)，单词不在图中时返回false.
+   */
+  public boolean reachable(String source, String target) {
+    int u = graph.id(source.toLowerCase());
+    int v = graph.id(target.toLowerCase());
+    return u >= 0 && v >= 0 && reachable(u, v);
+  }
+
+  private boolean mayReachComponent(int x, int y) {
+    if (x == y) {
+      return true;
+    }
+    if (x < y) {
+      return false;
+    }
+    int c = componentCount;
+    for (int k = 0; k < traversals; k++) {
+      int ix = k * c + x;
+      int iy = k * c + y;
+      if (low[iy] < low[ix] || rank[iy] > rank[ix]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 第k次遍历：从入度为0的分量出发，以随机的根顺序和随机的起始子节点做后序编号，
+   * low为子树（含经由已访问分量可达的部分）中的最小编号.
+   */
+  private void label(int k, SplittableRandom random) {
+    int c = componentCount;
+    int base = k * c;
+    boolean[] hasParent = new boolean[c];
+    for (int y : dagTargets) {
+      hasParent[y] = true;
+    }
+    int[] roots = new int[c];
+    int rootCount = 0;
+    for (int x = 0; x < c; x++) {
+      if (!hasParent[x]) {
+        roots[rootCount++] = x;
+      }
+    }
+    for (int i = rootCount - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int tmp = roots[i];
+      roots[i] = roots[j];
+      roots[j] = tmp;
+    }
+    boolean[] visited = new boolean[c];
+    int[] stack = new int[c];
+    int[] start = new int[c]; // 子节点的随机起始位置
+    int[] step = new int[c]; // 已检查的子节点数
+    int next = 0;
+    for (int r = 0; r < rootCount; r++) {
+      int depth = 0;
+      stack[0] = roots[r];
+      visited[roots[r]] = true;
+      start[roots[r]] = randomStart(roots[r], random);
+      while (depth >= 0) {
+        int x = stack[depth];
+        int degree = dagOffsets[x + 1] - dagOffsets[x];
+        if (step[x] < degree) {
+          int y = dagTargets[dagOffsets[x] + (start[x] + step[x]++) % degree];
+          if (!visited[y]) {
+            visited[y] = true;
+            start[y] = randomStart(y, random);
+            stack[++depth] = y;
+          }
+          continue;
+        }
+        // 所有子节点都已完成，取子节点标签的最小下界
+        int min = ++next;
+        for (int i = dagOffsets[x]; i < dagOffsets[x + 1]; i++) {
+          min = Math.min(min, low[base + dagTargets[i]]);
+        }
+        rank[base + x] = next;
+        low[base + x] = min;
+        depth--;
+      }
+    }
+  }
+
+  private int randomStart(int x, SplittableRandom random) {
+    int degree = dagOffsets[x + 1] - dagOffsets[x];
+    return degree <= 1 ? 0 : random.nextInt(degree);
+  }
+
+  /**
+   * 迭代式Tarjan算法，分量按完成顺序编号，即逆拓扑序.
+   *
+   * @return 分量数
+   */
+  private static int tarjan(GraphSnapshot graph, int[] component) {
+    int n = graph.nodeCount();
+    final int[] offsets = graph.offsets;
+    final int[] targets = graph.targets;
+    int[] index = new int[n];
+    int[] lowLink = new int[n];
+    Arrays.fill(index, -1);
+    boolean[] onStack = new boolean[n];
+    int[] stack = new int[n]; // Tarjan的节点栈
+    int stackSize = 0;
+    int[] callNode = new int[n]; // 模拟递归的调用栈
+    int[] callEdge = new int[n];
+    int counter = 0;
+    int components = 0;
+    for (int root = 0; root < n; root++) {
+      if (index[root] >= 0) {
+        continue;
+      }
+      int depth = 0;
+      callNode[0] = root;
+      callEdge[0] = offsets[root];
+      index[root] = lowLink[root] = counter++;
+      stack[stackSize++] = root;
+      onStack[root] = true;
+      while (depth >= 0) {
+        int u = callNode[depth];
+        if (callEdge[depth] < offsets[u + 1]) {
+          int v = targets[callEdge[depth]++];
+          if (index[v] < 0) {
+            index[v] = lowLink[v] = counter++;
+            stack[stackSize++] = v;
+            onStack[v] = true;
+            depth++;
+            callNode[depth] = v;
+            callEdge[depth] = offsets[v];
+          } else if (onStack[v]) {
+            lowLink[u] = Math.min(lowLink[u], index[v]);
+          }
+          continue;
+        }
+        if (lowLink[u] == index[u]) {
+          int w;
+          do {
+            w = stack[--stackSize];
+            onStack[w] = false;
+            component[w] = components;
+          } while (w != u);
+          components++;
+        }
+        depth--;
+        if (depth >= 0) {
+          int parent = callNode[depth];
+          lowLink[parent] = Math.min(lowLink[parent], lowLink[u]);
+        }
+      }
+    }
+    return components;
+  }
+}
@@ -0,0 +1,132 @@
+package org.example.lab1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单源最短路径结果：节点使用稠密int编号，保存距离数组.
+ * 前驱DAG由距离隐式给出：入边(p, v)满足dist[p] + w == dist[v]时p是v的前驱，
+ * 还原路径时沿反向CSR查找，所有等长的最短路径都可以还原.
+ */
+
+public final class ShortestPathTree {
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  private final GraphSnapshot graph;
+  private final int source;
+  private final int[] dist;
+
+  ShortestPathTree(GraphSnapshot graph, int source, int[] dist) {
+    this.graph = graph;
+    this.source = source;
+    this.dist = dist;
+  }
+
+  /**
+   * 在快照上以source为起点运行基于堆的Dijkstra.
+   */
+  static ShortestPathTree compute(GraphSnapshot graph, int s) {
+    int[] dist = new int[graph.nodeCount()];
+    Arrays.fill(dist, UNREACHABLE);
+    dist[s] = 0;
+    long begin = GraphMetrics.begin();
+    IndexedMinHeap heap = new IndexedMinHeap(graph.nodeCount());
+    heap.insertOrDecrease(s, 0);
+    int settled = propagate(graph, dist, heap);
+    GraphMetrics.end(GraphMetrics.Operation.SHORTEST_PATH, begin, settled);
+    return new ShortestPathTree(graph, s, dist);
+  }
+
+  /**
+   * 从堆中已有的节点出发做Dijkstra松弛，直到堆为空. dist中的其他值必须是可达路径的长度上界.
+   *
+   * @return 出堆的节点数
+   */
+  static int propagate(GraphSnapshot graph, int[] dist, IndexedMinHeap heap) {
+    return propagate(graph.offsets, graph.targets, graph.weights, dist, heap);
+  }
+
+  /**
+   * 同上，邻接由CSR数组给出，可以用于反向图.
+   */
+  static int propagate(int[] offsets, int[] targets, int[] weights, int[] dist,
+                       IndexedMinHeap heap) {
+    int settled = 0;
+    while (!heap.isEmpty()) {
+      int u = heap.poll();
+      settled++;
+      int du = dist[u];
+      for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+        int v = targets[i];
+        long nd = (long) du + weights[i];
+        if (nd < dist[v]) {
+          dist[v] = (int) nd;
+          heap.insertOrDecrease(v, (int) nd);
+        }
+      }
+    }
+    return settled;
+  }
+
+  GraphSnapshot graph() {
+    return graph;
+  }
+
+  int[] distances() {
+    return dist;
+  }
+
+  /**
+   * 起点.
+   */
+  public String source() {
+    return graph.word(source);
+  }
+
+  /**
+   * 图中所有节点，按编号顺序.
+   */
+  public List<String> nodes() {
+    return graph.nodes();
+  }
+
+  /**
+   * 节点是否在图中.
+   */
+  public boolean contains(String node) {
+    return graph.id(node) >= 0;
+  }
+
+  /**
+   * 起点到target的最短距离，不可达或不存在时返回UNREACHABLE.
+   */
+  public int distanceTo(String target) {
+    int t = graph.id(target);
+    return t < 0 ? UNREACHABLE : dist[t];
+  }
+
+  /**
+   * 起点到target的所有最短路径，路径按需还原. target不在图中时返回null.
+   */
+  public ShortestPaths shortestPaths(String target) {
+    int t = graph.id(target);
+    return t < 0 ? null : new ShortestPaths(graph, source, t, dist);
+  }
+
+  /**
+   * 还原起点到target的所有最短路径，不可达时返回空列表.
+   * 路径条数可能随图的规模指数增长，数量大时使用shortestPaths按需迭代或计数.
+   */
+  public List<List<String>> pathsTo(String target) {
+    List<List<String>> allPaths = new ArrayList<>();
+    ShortestPaths paths = shortestPaths(target);
+    if (paths == null || !paths.isReachable()) {
+      return allPaths;
+    }
+    long begin = GraphMetrics.begin();
+    paths.forEach(allPaths::add);
+    GraphMetrics.end(GraphMetrics.Operation.PATH_ENUMERATION, begin, allPaths.size());
+    return allPaths;
+  }
+}
@@ -0,0 +1,244 @@
+package org.example.lab1;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 起点到一个终点的所有最短路径. 距离只保存一次，路径在迭代时沿前驱DAG逐条还原，
+ * 不会一次性生成全部路径；路径条数可以用动态规划直接计算，不需要枚举.
+ * 距离可以来自完整的单源距离数组，也可以只包含点对点搜索确定了距离的节点.
+ */
+
+public final class ShortestPaths implements Iterable<List<String>> {
+  private static final int MISSING = -2;
+  private final GraphSnapshot graph;
+  private final int source;
+  private final int target;
+  private final int[] dist; // 单源距离数组，或为null
+  private final IntIntMap sparseDist; // dist为null时使用，不在其中的节点视为不可达
+  private BigInteger count; // 首次调用count时计算
+
+  ShortestPaths(GraphSnapshot graph, int source, int target, int[] dist) {
+    this(graph, source, target, dist, null);
+  }
+
+  /**
+   * 只知道部分节点距离的结果. sparseDist必须包含所有最短路径上的节点，
+   * 其中的值不能大于真实距离，且在最短路径上的节点等于真实距离.
+   */
+  ShortestPaths(GraphSnapshot graph, int source, int target, IntIntMap sparseDist) {
+    this(graph, source, target, null, sparseDist);
+  }
+
+  private ShortestPaths(GraphSnapshot graph, int source, int target, int[] dist,
+                        IntIntMap sparseDist) {
+    this.graph = graph;
+    this.source = source;
+    this.target = target;
+    this.dist = dist;
+    this.sparseDist = sparseDist;
+  }
+
+  public String source() {
+    return graph.word(source);
+  }
+
+  public String target() {
+    return graph.word(target);
+  }
+
+  /**
+   * 最短路径的长度，不可达时为ShortestPathTree.UNREACHABLE.
+   */
+  public int distance() {
+    return distanceOf(target);
+  }
+
+  public boolean isReachable() {
+    return distanceOf(target) != ShortestPathTree.UNREACHABLE;
+  }
+
+  /**
+   * 逐条还原路径的迭代器，每条路径是从起点到终点的单词列表. 顺序与pathsTo相同.
+   */
+  @Override
+  public Iterator<List<String>> iterator() {
+    return new PathIterator();
+  }
+
+  public Stream<List<String>> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+            Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  /**
+   * 最多还原limit条路径.
+   */
+  public List<List<String>> paths(int limit) {
+    List<List<String>> paths = new ArrayList<>();
+    Iterator<List<String>> it = iterator();
+    while (paths.size() < limit && it.hasNext()) {
+      paths.add(it.next());
+    }
+    return paths;
+  }
+
+  /**
+   * 最短路径的条数. 在终点的前驱DAG上按距离递增做动态规划，
+   * 代价与DAG的大小有关，与路径条数无关. 不可达时为0.
+   */
+  public synchronized BigInteger count() {
+    if (count != null) {
+      return count;
+    }
+    if (!isReachable()) {
+      count = BigInteger.ZERO;
+      return count;
+    }
+    GraphSnapshot.Reverse reverse = graph.reverse();
+    // 找出前驱DAG中能到达终点的节点，按(距离, 编号)排序. slot是节点在order中的下标，
+    // 已找到但还未排序的节点为-1
+    IntIntMap slot = new IntIntMap(16);
+    long[] order = new long[16];
+    int size = 0;
+    int[] stack = new int[16];
+    int top = 0;
+    stack[top++] = target;
+    slot.put(target, -1);
+    while (top > 0) {
+      int node = stack[--top];
+      if (size == order.length) {
+        order = Arrays.copyOf(order, size * 2);
+      }
+      order[size++] = (long) distanceOf(node) << 32 | node;
+      if (node == source) {
+        continue;
+      }
+      for (int i = reverse.offsets[node]; i < reverse.offsets[node + 1]; i++) {
+        int p = reverse.sources[i];
+        if (slot.get(p, MISSING) == MISSING && isTight(p, node, reverse.weights[i])) {
+          slot.put(p, -1);
+          if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+          }
+          stack[top++] = p;
+        }
+      }
+    }
+    Arrays.sort(order, 0, size);
+    BigInteger[] counts = new BigInteger[size];
+    for (int k = 0; k < size; k++) {
+      int node = (int) order[k];
+      slot.put(node, k);
+      if (node == source) {
+        counts[k] = BigInteger.ONE;
+        continue;
+      }
+      // 边权至少为1，前驱的距离更小，已经处理过
+      BigInteger sum = BigInteger.ZERO;
+      for (int i = reverse.offsets[node]; i < reverse.offsets[node + 1]; i++) {
+        int p = reverse.sources[i];
+        int at = slot.get(p, MISSING);
+        if (at >= 0 && isTight(p, node, reverse.weights[i])) {
+          sum = sum.add(counts[at]);
+        }
+      }
+      counts[k] = sum;
+    }
+    count = counts[slot.get(target, MISSING)];
+    return count;
+  }
+
+  /**
+   * 边(p, node)是否在最短路径上.
+   */
+  private boolean isTight(int p, int node, int weight) {
+    int dp = distanceOf(p);
+    return dp != ShortestPathTree.UNREACHABLE && (long) dp + weight == distanceOf(node);
+  }
+
+  private int distanceOf(int node) {
+    return dist != null ? dist[node] : sparseDist.get(node, ShortestPathTree.UNREACHABLE);
+  }
+
+  /**
+   * 从终点沿前驱DAG做迭代式深度优先回溯，cursor是每层下一条要检查的入边.
+   */
+  private final class PathIterator implements Iterator<List<String>> {
+    private final GraphSnapshot.Reverse reverse = graph.reverse();
+    private int[] stack = new int[16];
+    private int[] cursor = new int[16];
+    private int depth;
+    private List<String> next;
+
+    PathIterator() {
+      if (isReachable()) {
+        stack[0] = target;
+        cursor[0] = reverse.offsets[target];
+      } else {
+        depth = -1;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        next = advance();
+      }
+      return next != null;
+    }
+
+    @Override
+    public List<String> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      List<String> path = next;
+      next = null;
+      return path;
+    }
+
+    private List<String> advance() {
+      while (depth >= 0) {
+        int node = stack[depth];
+        if (node == source) {
+          List<String> path = new ArrayList<>(depth + 1);
+          for (int i = depth; i >= 0; i--) {
+            path.add(graph.word(stack[i]));
+          }
+          depth--;
+          return path;
+        }
+        int predecessor = -1;
+        int end = reverse.offsets[node + 1];
+        while (cursor[depth] < end && predecessor < 0) {
+          int i = cursor[depth]++;
+          int p = reverse.sources[i];
+          if (isTight(p, node, reverse.weights[i])) {
+            predecessor = p;
+          }
+        }
+        if (predecessor >= 0) {
+          depth++;
+          if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+            cursor = Arrays.copyOf(cursor, depth * 2);
+          }
+          stack[depth] = predecessor;
+          cursor[depth] = reverse.offsets[predecessor];
+        } else {
+          depth--;
+        }
+      }
+      return null;
+    }
+  }
+}
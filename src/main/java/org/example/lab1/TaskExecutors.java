@@ -0,0 +1,39 @@
+package org.example.lab1;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台任务使用的线程池，界面和GraphServer共用.
+ * 运行时支持虚拟线程（Java 21，或开启预览特性的Java 19/20）时每个任务一个虚拟线程，
+ * 否则退回到守护线程组成的缓存线程池. 通过反射查找，编译时不依赖预览API.
+ */
+
+final class TaskExecutors {
+  private TaskExecutors() {
+  }
+
+  /**
+   * 每个任务一个虚拟线程的线程池，退回到缓存线程池时线程名以prefix开头.
+   */
+  static ExecutorService newTaskExecutor(String prefix) {
+    try {
+      return (ExecutorService) Executors.class
+              .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      // 没有虚拟线程，或预览特性未开启
+      return Executors.newCachedThreadPool(daemonThreads(prefix));
+    }
+  }
+
+  private static ThreadFactory daemonThreads(String prefix) {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
@@ -0,0 +1,127 @@
+package org.example.lab1;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * 只追加的单词序列. 每个不同的单词在词典中只保存一次，序列本身只存词典编号：
+ * 词典不超过65536个单词时每个编号占2字节，超过后整体换成4字节. get时才查词典得到单词.
+ *
+ * <p>词典不与GraphBuilder共用：序列保留单词的原始大小写，setWords也可以设置不在图中的单词，
+ * 而构建器的字典中每个单词都是快照的节点，共用会把这些单词变成孤立节点. 分词器输出的单词
+ * 已经是小写且驻留过的，两个字典里的键是同一批String实例，重复的只有散列槽.
+ *
+ * <p>已经写入的下标不会再被修改，扩容时换成新数组，所以prefix返回的视图在之后追加时保持不变，
+ * 可以安全地发布给其他线程.
+ */
+
+final class TokenSequence extends AbstractList<String> implements RandomAccess {
+  private static final int NARROW_LIMIT = 1 << 16;
+  private final WordDictionary dictionary;
+  private char[] narrow; // 2字节编号，换成wide后为null
+  private int[] wide;
+  private int size;
+
+  TokenSequence() {
+    this(new WordDictionary(16), 16);
+  }
+
+  private TokenSequence(WordDictionary dictionary, int expected) {
+    this.dictionary = dictionary;
+    narrow = new char[Math.max(16, expected)];
+  }
+
+  /**
+   * 内容与words相同的序列.
+   */
+  static TokenSequence of(List<String> words) {
+    TokenSequence tokens = new TokenSequence(new WordDictionary(16), words.size());
+    for (String word : words) {
+      tokens.add(word);
+    }
+    return tokens;
+  }
+
+  @Override
+  public String get(int index) {
+    Objects.checkIndex(index, size);
+    return dictionary.word(narrow != null ? narrow[index] : wide[index]);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean add(String word) {
+    int id = dictionary.add(Objects.requireNonNull(word));
+    if (narrow != null && id >= NARROW_LIMIT) {
+      wide = new int[Math.max(16, narrow.length)];
+      for (int i = 0; i < size; i++) {
+        wide[i] = narrow[i];
+      }
+      narrow = null;
+    }
+    if (narrow != null) {
+      if (size == narrow.length) {
+        narrow = Arrays.copyOf(narrow, size * 2);
+      }
+      narrow[size] = (char) id;
+    } else {
+      if (size == wide.length) {
+        wide = Arrays.copyOf(wide, size * 2);
+      }
+      wide[size] = id;
+    }
+    size++;
+    modCount++;
+    return true;
+  }
+
+  /**
+   * 不同单词的数量.
+   */
+  int distinctWords() {
+    return dictionary.size();
+  }
+
+  /**
+   * 前size个单词的只读视图，不复制数据，之后的追加对它没有影响.
+   */
+  List<String> prefix(int size) {
+    Objects.checkFromToIndex(0, size, this.size);
+    return new Prefix(dictionary.words(), narrow, wide, size);
+  }
+
+  /**
+   * prefix返回的视图，持有创建时的数组.
+   */
+  private static final class Prefix extends AbstractList<String> implements RandomAccess {
+    private final String[] words;
+    private final char[] narrow;
+    private final int[] wide;
+    private final int size;
+
+    Prefix(String[] words, char[] narrow, int[] wide, int size) {
+      this.words = words;
+      this.narrow = narrow;
+      this.wide = wide;
+      this.size = size;
+    }
+
+    @Override
+    public String get(int index) {
+      Objects.checkIndex(index, size);
+      return words[narrow != null ? narrow[index] : wide[index]];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
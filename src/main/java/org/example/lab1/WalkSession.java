@@ -0,0 +1,115 @@
+package org.example.lab1;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 一次交互式随机游走的状态，每个用户或请求持有自己的会话，互不干扰.
+ * 每一步都在当前的图快照上进行，节点和边按单词记录，图在两步之间被修改也可以继续游走.
+ */
+
+public final class WalkSession {
+  private final Supplier<GraphSnapshot> graph;
+  private final Random random;
+  private final Consumer<List<String>> onFinish;
+  private final List<String> path = new ArrayList<>();
+  private final Set<String> visitedEdges = new HashSet<>();
+  private String currentNode;
+  private boolean walking;
+
+  /**
+   * 创建会话.
+   *
+   * @param graph 提供每一步所用的图快照
+   * @param random 随机数来源
+   * @param onFinish 游走结束时接收完整路径，可以为null
+   */
+  public WalkSession(Supplier<GraphSnapshot> graph, Random random,
+                     Consumer<List<String>> onFinish) {
+    this.graph = graph;
+    this.random = random;
+    this.onFinish = onFinish;
+  }
+
+  /**
+   * 走一步：没有在游走时先随机选择起点. 返回当前路径或结束原因.
+   */
+  public synchronized String step() {
+    long begin = GraphMetrics.begin();
+    try {
+      return advance();
+    } finally {
+      GraphMetrics.end(GraphMetrics.Operation.RANDOM_WALK, begin, 1);
+    }
+  }
+
+  private String advance() {
+    GraphSnapshot g = graph.get();
+    if (!walking) {
+      int start = g.walker().randomStart(random);
+      if (start < 0) {
+        return "图中没有节点";
+      }
+      currentNode = g.word(start);
+      path.clear();
+      path.add(currentNode);
+      visitedEdges.clear();
+      walking = true;
+    }
+
+    int u = g.id(currentNode);
+    int degree = u < 0 ? 0 : g.outDegree(u);
+    if (degree == 0) {
+      finish();
+      return "游走结束,不存在边";
+    }
+
+    String nextNode = g.word(g.targets[g.offsets[u] + random.nextInt(degree)]);
+    String edge = currentNode + "->" + nextNode;
+
+    if (visitedEdges.contains(edge)) {
+      path.add(nextNode);
+      finish();
+      String end = " -> " + nextNode;
+      return end + "游走结束，发现重复边";
+    }
+
+    visitedEdges.add(edge);
+    path.add(nextNode);
+    currentNode = nextNode;
+    return String.join(" -> ", path);
+  }
+
+  private void finish() {
+    walking = false;
+    if (onFinish != null) {
+      onFinish.accept(List.copyOf(path));
+    }
+  }
+
+  public synchronized boolean isWalking() {
+    return walking;
+  }
+
+  /**
+   * 当前（或最近一次）游走经过的节点.
+   */
+  public synchronized List<String> path() {
+    return List.copyOf(path);
+  }
+
+  /**
+   * 重置游走状态.
+   */
+  public synchronized void reset() {
+    walking = false;
+    currentNode = null;
+    path.clear();
+    visitedEdges.clear();
+  }
+}
@@ -0,0 +1,16 @@
+package org.example.lab1;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 随机游走结果的输出端，可以直接作为RandomWalker.walk的消费者.
+ * accept写入失败时抛出UncheckedIOException.
+ */
+
+public interface WalkSink extends RandomWalker.WalkConsumer, Closeable {
+  /**
+   * 把已经接收的游走全部写出.
+   */
+  void flush() throws IOException;
+}
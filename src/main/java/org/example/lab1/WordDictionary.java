@@ -0,0 +1,126 @@
+package org.example.lab1;
+
+import java.util.Arrays;
+
+/**
+ * 单词到稠密int编号的字典，编号按首次加入的顺序从0开始分配.
+ * 散列槽中只存编号，查询已有单词时不分配对象（String缓存了自己的hashCode）.
+ */
+
+final class WordDictionary {
+  private String[] words; // 编号 -> 单词
+  private int[] slots; // 编号 + 1，0表示空槽
+  private int size;
+
+  WordDictionary(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+    words = new String[Math.max(4, expected)];
+    slots = new int[capacity];
+  }
+
+  private WordDictionary(String[] words, int[] slots, int size) {
+    this.words = words;
+    this.slots = slots;
+    this.size = size;
+  }
+
+  /**
+   * 按给定顺序编号的字典，words中不能有重复.
+   */
+  static WordDictionary of(String[] words) {
+    WordDictionary dictionary = new WordDictionary(words.length);
+    for (String word : words) {
+      dictionary.add(word);
+    }
+    return dictionary;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * 单词的编号，不存在时返回-1.
+   */
+  int id(String word) {
+    int mask = slots.length - 1;
+    for (int slot = slot(word, mask); ; slot = (slot + 1) & mask) {
+      int s = slots[slot];
+      if (s == 0) {
+        return -1;
+      }
+      if (words[s - 1].equals(word)) {
+        return s - 1;
+      }
+    }
+  }
+
+  /**
+   * 单词的编号，不存在时分配一个新编号.
+   */
+  int add(String word) {
+    int mask = slots.length - 1;
+    int slot = slot(word, mask);
+    for (int s = slots[slot]; s != 0; s = slots[slot]) {
+      if (words[s - 1].equals(word)) {
+        return s - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    int id = size++;
+    if (id == words.length) {
+      words = Arrays.copyOf(words, id * 2);
+    }
+    words[id] = word;
+    slots[slot] = id + 1;
+    if (2 * size > slots.length) {
+      grow();
+    }
+    return id;
+  }
+
+  String word(int id) {
+    return words[id];
+  }
+
+  /**
+   * 内部的编号 -> 单词数组，只有前size个有效. 扩容时换成新数组，已有的元素不会被改写.
+   */
+  String[] words() {
+    return words;
+  }
+
+  /**
+   * 按编号顺序排列的所有单词.
+   */
+  String[] toArray() {
+    return Arrays.copyOf(words, size);
+  }
+
+  /**
+   * 独立的副本，之后对任一方的修改不影响另一方.
+   */
+  WordDictionary copy() {
+    return new WordDictionary(Arrays.copyOf(words, Math.max(4, size)), slots.clone(), size);
+  }
+
+  private void grow() {
+    int[] old = slots;
+    slots = new int[old.length * 2];
+    int mask = slots.length - 1;
+    for (int s : old) {
+      if (s != 0) {
+        int slot = slot(words[s - 1], mask);
+        while (slots[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        slots[slot] = s;
+      }
+    }
+  }
+
+  private static int slot(String word, int mask) {
+    int h = word.hashCode() * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+}
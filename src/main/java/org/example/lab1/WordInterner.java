@@ -0,0 +1,77 @@
+package org.example.lab1;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 以ASCII字节序列为键的字符串驻留表（开放寻址），
+ * 同一个单词只分配一次String，重复出现时不再产生新对象.
+ */
+
+final class WordInterner {
+  private String[] words = new String[1024];
+  private int[] hashes = new int[1024];
+  private int size;
+
+  /**
+   * 返回与buf[0, len)内容相同的唯一String实例，buf中只能是ASCII字符.
+   */
+  String intern(byte[] buf, int len) {
+    int h = 0;
+    for (int i = 0; i < len; i++) {
+      h = 31 * h + buf[i]; // 与String.hashCode一致
+    }
+    int mask = words.length - 1;
+    int i = mix(h) & mask;
+    while (words[i] != null) {
+      if (hashes[i] == h && equals(words[i], buf, len)) {
+        return words[i];
+      }
+      i = (i + 1) & mask;
+    }
+    String word = new String(buf, 0, len, StandardCharsets.ISO_8859_1);
+    words[i] = word;
+    hashes[i] = h;
+    if (++size * 2 > words.length) {
+      rehash();
+    }
+    return word;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private static boolean equals(String word, byte[] buf, int len) {
+    if (word.length() != len) {
+      return false;
+    }
+    for (int i = 0; i < len; i++) {
+      if (word.charAt(i) != buf[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int mix(int h) {
+    return h ^ (h >>> 16);
+  }
+
+  private void rehash() {
+    String[] oldWords = words;
+    int[] oldHashes = hashes;
+    words = new String[oldWords.length * 2];
+    hashes = new int[oldWords.length * 2];
+    int mask = words.length - 1;
+    for (int j = 0; j < oldWords.length; j++) {
+      if (oldWords[j] != null) {
+        int i = mix(oldHashes[j]) & mask;
+        while (words[i] != null) {
+          i = (i + 1) & mask;
+        }
+        words[i] = oldWords[j];
+        hashes[i] = oldHashes[j];
+      }
+    }
+  }
+}
@@ -3,9 +3,31 @@ package org.example.lab1;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import javax.management.ObjectName;
 import org.junit.Assert;
 import org.junit.jupiter.api.Test;
 
@@ -103,4 +125,874 @@ class GraphTest {
     String result4 = g.queryBridgeWords("worlds", "out");
     Assert.assertEquals("No bridge words from worlds to out!", result4);
   }
+
+  @Test
+  void testAllEqualShortestPaths() {
+    Graph g = new Graph();
+    g.createGraph(Arrays.asList("a", "b", "d", "a", "c", "d"));
+    List<List<String>> paths = g.calcAllShortestPaths("a", "d");
+    assertEquals(2, paths.size());
+    Assert.assertTrue(paths.contains(Arrays.asList("a", "b", "d", "路径长度为：2")));
+    Assert.assertTrue(paths.contains(Arrays.asList("a", "c", "d", "路径长度为：2")));
+  }
+
+  @Test
+  void testShortestPathsToAll() {
+    Graph g = new Graph();
+    File file = new File("src/data/test.txt");
+    g.createGraph(GraphUtils.readWordsFromFile(file));
+    g.setWords(GraphUtils.readWordsFromFile(file));
+    Map<String, List<List<String>>> all = g.calcAllShortestPathsToAll("new");
+    assertEquals(g.getAllNodes().size() - 1, all.size());
+    for (String target : g.getAllNodes()) {
+      if (!target.equals("new")) {
+        assertEquals(g.calcAllShortestPaths("new", target), all.get(target));
+      }
+    }
+  }
+
+  @Test
+  void testFreezeSnapshot() {
+    Graph g = new Graph();
+    File file = new File("src/data/test.txt");
+    g.createGraph(GraphUtils.readWordsFromFile(file));
+    GraphSnapshot snapshot = g.freeze();
+    assertEquals(g.getAllNodes().size(), snapshot.nodeCount());
+    for (String node : g.getAllNodes()) {
+      assertEquals(g.getNeighbors(node), snapshot.neighbors(node));
+    }
+    Assert.assertSame(snapshot, g.freeze());
+    g.addEdge("new", "life");
+    Assert.assertNotSame(snapshot, g.freeze());
+    assertEquals(2, g.freeze().weight(g.freeze().id("new"), g.freeze().id("life")));
+  }
+
+  @Test
+  void testStreamingLoadMatchesCreateGraph() {
+    File file = new File("src/data/test.txt");
+    Graph expected = new Graph();
+    expected.createGraph(GraphUtils.readWordsFromFile(file));
+    Graph g = new Graph();
+    assertEquals(13, GraphUtils.loadGraphFromFile(file, g));
+    assertEquals(expected.getWordsMap(), g.getWordsMap());
+    Assert.assertEquals("The bridge words from new to and are: life.",
+            g.queryBridgeWords("new", "and"));
+  }
+
+  @Test
+  void testTokenizerMatchesRegexCleaning() throws Exception {
+    String text = "Don't stop,believing.Hold\ton\r\nto THAT feel-ing @ 42 caf\u00e9 \u212Aing";
+    File file = File.createTempFile("tokens", ".txt");
+    file.deleteOnExit();
+    Files.writeString(file.toPath(), text);
+    List<String> expected = new ArrayList<>();
+    for (String token : text.split("\\s+|,\\s*|\\.\\s*")) {
+      String word = token.toLowerCase().replaceAll("[^a-zA-Z]", "");
+      if (!word.isEmpty()) {
+        expected.add(word);
+      }
+    }
+    assertEquals(expected, GraphUtils.readWordsFromFile(file));
+  }
+
+  @Test
+  void testParallelBuildMatchesSequential() {
+    File file = new File("src/data/test.txt");
+    List<String> words = GraphUtils.readWordsFromFile(file);
+    Graph expected = new Graph();
+    expected.createGraph(words);
+    for (int parallelism = 1; parallelism <= 8; parallelism++) {
+      Graph fromList = new Graph();
+      ParallelGraphBuilder.createGraph(fromList, words, parallelism);
+      assertEquals(expected.getWordsMap(), fromList.getWordsMap());
+      Graph fromFile = new Graph();
+      assertEquals(words.size(),
+              ParallelGraphBuilder.loadGraphFromFile(file, fromFile, parallelism));
+      assertEquals(expected.getWordsMap(), fromFile.getWordsMap());
+    }
+    Assert.assertThrows(IllegalArgumentException.class,
+            () -> ParallelGraphBuilder.createGraph(new Graph(), words, 0));
+    Assert.assertThrows(IllegalArgumentException.class,
+            () -> ParallelGraphBuilder.loadGraphFromFile(file, new Graph(), -1));
+  }
+
+  @Test
+  void testParallelBuildKeepsNodeOrder() throws Exception {
+    Random random = new Random(5);
+    String[] vocabulary = new String[300];
+    for (int k = 0; k < vocabulary.length; k++) {
+      vocabulary[k] = "w" + (char) ('a' + k / 26) + (char) ('a' + k % 26);
+    }
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < 20000; i++) {
+      words.add(vocabulary[random.nextInt(vocabulary.length)]);
+    }
+    Path file = Files.createTempFile("corpus", ".txt");
+    try {
+      Files.writeString(file, String.join(" ", words));
+      Graph expected = new Graph();
+      expected.createGraph(words);
+      GraphSnapshot s = expected.freeze();
+      Graph fromList = new Graph();
+      int[] events = new int[1];
+      fromList.addGraphListener(change -> events[0]++);
+      ParallelGraphBuilder.createGraph(fromList, words, 8);
+      assertEquals(1, events[0]);
+      Graph fromFile = new Graph();
+      ParallelGraphBuilder.loadGraphFromFile(file.toFile(), fromFile, 8);
+      for (Graph g : List.of(fromList, fromFile)) {
+        GraphSnapshot p = g.freeze();
+        assertEquals(s.nodeCount(), p.nodeCount());
+        for (int u = 0; u < s.nodeCount(); u++) {
+          assertEquals(s.word(u), p.word(u));
+        }
+        for (int i = 0; i < 50; i++) {
+          String a = vocabulary[random.nextInt(vocabulary.length)];
+          String b = vocabulary[random.nextInt(vocabulary.length)];
+          assertEquals(expected.queryBridgeWords(a, b), g.queryBridgeWords(a, b));
+          assertEquals(expected.calcAllShortestPaths(a, b), g.calcAllShortestPaths(a, b));
+        }
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void testBridgeWordsBatch() {
+    Graph g = new Graph();
+    File file = new File("src/data/test.txt");
+    g.createGraph(GraphUtils.readWordsFromFile(file));
+    List<String[]> pairs = Arrays.asList(new String[] {"New", "and"},
+            new String[] {"live", "to"}, new String[] {"worlds", "out"});
+    List<String> expected = new ArrayList<>();
+    for (String[] pair : pairs) {
+      expected.add(g.queryBridgeWords(pair[0], pair[1]));
+    }
+    assertEquals(expected, g.queryBridgeWords(pairs));
+  }
+
+  @Test
+  void testBridgeWordsThroughHub() {
+    Graph g = new Graph();
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < 1100; i++) {
+      words.add("start");
+      words.add("w" + i);
+      words.add("hub");
+    }
+    g.createGraph(words);
+    List<String> bridges = g.freeze().bridgeIndex().bridgeWords("start", "hub");
+    assertEquals(1100, bridges.size());
+    Assert.assertTrue(bridges.contains("w42"));
+    assertEquals("No bridge words from hub to hub!", g.queryBridgeWords("hub", "hub"));
+  }
+
+  @Test
+  void testGenerateNewTextStreaming() throws Exception {
+    Graph g = new Graph();
+    File file = new File("src/data/test.txt");
+    g.createGraph(GraphUtils.readWordsFromFile(file));
+    Assert.assertArrayEquals(new String[] {"life"}, g.findBridgeWords("new", "And"));
+    assertEquals(0, g.findBridgeWords("care", "new").length);
+    assertEquals("new life and new worlds", g.generateNewText("new and worlds"));
+
+    StringBuilder input = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      input.append("new and\tworlds\n");
+      expected.append(i == 0 ? "new" : " new").append(" life and new worlds");
+    }
+    for (int parallelism = 1; parallelism <= 4; parallelism += 3) {
+      StringWriter out = new StringWriter();
+      g.generateNewText(new StringReader(input.toString()), out, parallelism);
+      assertEquals(expected.toString(), out.toString());
+    }
+  }
+
+  @Test
+  void testWeightedRandomWalks() {
+    Graph g = new Graph();
+    File file = new File("src/data/test.txt");
+    g.createGraph(GraphUtils.readWordsFromFile(file));
+    RandomWalker walker = g.freeze().walker();
+    List<List<String>> walks = walker.walks(5000, 0, 42L);
+    assertEquals(5000, walks.size());
+    for (List<String> walk : walks) {
+      for (int i = 0; i < walk.size() - 1; i++) {
+        Assert.assertTrue(g.getNeighbors(walk.get(i)).containsKey(walk.get(i + 1)));
+      }
+    }
+    List<List<String>> again = walker.walks(5000, 0, 42L);
+    assertEquals(new HashSet<>(walks), new HashSet<>(again));
+
+    Graph weighted = new Graph();
+    weighted.addEdge("a", "b");
+    for (int i = 0; i < 3; i++) {
+      weighted.addEdge("a", "c");
+    }
+    int[] hits = new int[1];
+    weighted.freeze().walker().walk(40000, 2, 7L, (nodes, length) -> {
+      if (weighted.freeze().word(nodes[0]).equals("a")
+              && weighted.freeze().word(nodes[1]).equals("c")) {
+        synchronized (hits) {
+          hits[0]++;
+        }
+      }
+    });
+    assertEquals(30000, hits[0], 600);
+  }
+
+  @Test
+  void testWalkSinkFormats() throws Exception {
+    Graph g = new Graph();
+    File file = new File("src/data/test.txt");
+    g.createGraph(GraphUtils.readWordsFromFile(file));
+    GraphSnapshot snapshot = g.freeze();
+    List<List<String>> walks = snapshot.walker().walks(3000, 0, 1L);
+    Path text = Files.createTempFile("walks", ".txt");
+    Path binary = Files.createTempFile("walks", ".bin");
+    text.toFile().deleteOnExit();
+    binary.toFile().deleteOnExit();
+    for (int round = 0; round < 2; round++) {
+      try (FileWalkSink textSink = new FileWalkSink(text, snapshot,
+                   FileWalkSink.Format.TEXT, false);
+           FileWalkSink binarySink = new FileWalkSink(binary, snapshot,
+                   FileWalkSink.Format.BINARY, true)) {
+        for (List<String> walk : walks) {
+          int[] nodes = walk.stream().mapToInt(snapshot::id).toArray();
+          textSink.accept(nodes, nodes.length);
+          binarySink.accept(nodes, nodes.length);
+        }
+      }
+    }
+    List<String> lines = Files.readAllLines(text);
+    List<List<String>> decoded = FileWalkSink.readBinary(binary);
+    assertEquals(2 * walks.size(), lines.size());
+    assertEquals(2 * walks.size(), decoded.size());
+    for (int i = 0; i < lines.size(); i++) {
+      List<String> walk = walks.get(i % walks.size());
+      assertEquals(String.join(" -> ", walk), lines.get(i));
+      assertEquals(walk, decoded.get(i));
+    }
+  }
+
+  @Test
+  void testWalkAcrossGraphReplacement() throws Exception {
+    Path walkFile = Path.of("random_walk.txt");
+    byte[] original = Files.exists(walkFile) ? Files.readAllBytes(walkFile) : null;
+    Graph g = new Graph();
+    try {
+      g.createGraph(Arrays.asList("a", "b", "c", "a"));
+      g.randomWalk();
+      Map<String, Map<String, Integer>> replaced = new HashMap<>();
+      replaced.put("x", Map.of("y", 1));
+      g.setWordsMap(replaced);
+      // 当前节点不在新图中，游走结束，路径中的单词都来自旧图
+      assertEquals("游走结束,不存在边", g.randomWalk());
+      g.closeWalkSink();
+      List<String> lines = Files.readAllLines(walkFile);
+      for (String word : lines.get(lines.size() - 1).split(" -> ")) {
+        Assert.assertTrue(Set.of("a", "b", "c").contains(word));
+      }
+    } finally {
+      g.closeWalkSink();
+      if (original != null) {
+        Files.write(walkFile, original);
+      } else {
+        Files.deleteIfExists(walkFile);
+      }
+    }
+  }
+
+  @Test
+  void testWalkSinkSurvivesInterrupts() throws Exception {
+    Graph g = new Graph();
+    g.createGraph(Arrays.asList("a", "b"));
+    GraphSnapshot snapshot = g.freeze();
+    Path text = Files.createTempFile("walks", ".txt");
+    text.toFile().deleteOnExit();
+    try (FileWalkSink sink = new FileWalkSink(text, snapshot, FileWalkSink.Format.TEXT, true)) {
+      sink.acceptWords(List.of("a", "b"));
+      Thread.currentThread().interrupt();
+      Assert.assertThrows(IOException.class, sink::flush);
+      Assert.assertTrue(Thread.interrupted());
+      // 被中断的写出没有交给后台线程，之后的flush不会一直等待
+      sink.flush();
+      Assert.assertTrue(sink.isOpen());
+    }
+    assertEquals(List.of("a -> b"), Files.readAllLines(text));
+
+    Path walkFile = Path.of("random_walk.txt");
+    byte[] original = Files.exists(walkFile) ? Files.readAllBytes(walkFile) : null;
+    try {
+      g.randomWalk();
+      g.randomWalk();
+      int before = Files.readAllLines(walkFile).size();
+      g.randomWalk();
+      // 写盘时被中断会关闭通道，下一次游走应当重新打开文件
+      Thread.currentThread().interrupt();
+      g.randomWalk();
+      Assert.assertTrue(Thread.interrupted());
+      g.randomWalk();
+      g.randomWalk();
+      List<String> lines = Files.readAllLines(walkFile);
+      assertEquals(before + 1, lines.size());
+      assertEquals("a -> b", lines.get(lines.size() - 1));
+    } finally {
+      g.closeWalkSink();
+      if (original != null) {
+        Files.write(walkFile, original);
+      } else {
+        Files.deleteIfExists(walkFile);
+      }
+    }
+  }
+
+  @Test
+  void testBinarySnapshotRoundTrip() throws Exception {
+    Graph g = new Graph();
+    File file = new File("src/data/test.txt");
+    List<String> words = new ArrayList<>(GraphUtils.readWordsFromFile(file));
+    g.createGraph(words);
+    words.add("lonely");
+    g.setWords(words);
+    Path snapshot = Files.createTempFile("graph", ".bin");
+    snapshot.toFile().deleteOnExit();
+    g.saveSnapshot(snapshot);
+
+    Graph loaded = Graph.loadSnapshot(snapshot);
+    assertEquals(words, loaded.getWords());
+    assertEquals(g.calcAllShortestPaths("to", "life"), loaded.calcAllShortestPaths("to", "life"));
+    assertEquals(g.queryBridgeWords("new", "and"), loaded.queryBridgeWords("new", "and"));
+    assertEquals(g.getWordsMap(), loaded.getWordsMap());
+    loaded.addEdge("life", "lonely");
+    assertEquals(1, loaded.getNeighbors("life").get("lonely").intValue());
+
+    // 截断或头部损坏的文件报IOException，而不是数组越界
+    byte[] bytes = Files.readAllBytes(snapshot);
+    Path corrupt = Files.createTempFile("graph", ".bin");
+    corrupt.toFile().deleteOnExit();
+    for (int length : new int[] {10, 30, bytes.length / 2, bytes.length - 1}) {
+      Files.write(corrupt, Arrays.copyOf(bytes, length));
+      Assert.assertThrows(IOException.class, () -> Graph.loadSnapshot(corrupt));
+    }
+    byte[] negative = bytes.clone();
+    negative[8] = (byte) 0x80; // 节点数的最高字节
+    Files.write(corrupt, negative);
+    Assert.assertThrows(IOException.class, () -> Graph.loadSnapshot(corrupt));
+  }
+
+  @Test
+  void testIncrementalShortestPaths() {
+    Graph g = new Graph();
+    File file = new File("src/data/test.txt");
+    List<String> words = GraphUtils.readWordsFromFile(file);
+    g.createGraph(words);
+    g.setWords(words);
+    Assert.assertTrue(g.trackShortestPaths("to"));
+    List<GraphChange> events = new ArrayList<>();
+    g.addGraphListener(events::add);
+    Random random = new Random(7);
+    List<String> vocabulary = new ArrayList<>(g.getAllNodes());
+    vocabulary.add("brand");
+    vocabulary.add("fresh");
+    List<String> nodes = g.freeze().nodes();
+    for (int round = 0; round < 20; round++) {
+      StringBuilder text = new StringBuilder();
+      for (int i = 0; i < 3; i++) {
+        text.append(vocabulary.get(random.nextInt(vocabulary.size()))).append(", ");
+      }
+      g.appendText(text.toString());
+      Graph fresh = new Graph();
+      fresh.createGraph(g.getWords());
+      ShortestPathTree expected = fresh.calcShortestPathTree("to");
+      ShortestPathTree actual = g.calcShortestPathTree("to");
+      for (String node : fresh.getAllNodes()) {
+        assertEquals(expected.distanceTo(node), actual.distanceTo(node));
+        assertEquals(new HashSet<>(expected.pathsTo(node)), new HashSet<>(actual.pathsTo(node)));
+      }
+      // 合并出的快照与完整编译一致，编号保持不变，反向CSR也随之合并
+      GraphSnapshot merged = g.freeze();
+      assertEquals(fresh.getWordsMap(), g.getWordsMap());
+      assertEquals(nodes, merged.nodes().subList(0, nodes.size()));
+      nodes = merged.nodes();
+      GraphSnapshot.Reverse rebuilt = GraphSnapshot.of(nodes.toArray(new String[0]),
+              merged.offsets, merged.targets, merged.weights).reverse();
+      Assert.assertArrayEquals(rebuilt.offsets, merged.reverse().offsets);
+      Assert.assertArrayEquals(rebuilt.sources, merged.reverse().sources);
+      Assert.assertArrayEquals(rebuilt.weights, merged.reverse().weights);
+    }
+    assertEquals(20, events.size());
+    assertEquals(words.size() + 60, g.getWords().size());
+  }
+
+  @Test
+  void testQueryCache() {
+    Graph g = new Graph();
+    File file = new File("src/data/test.txt");
+    g.createGraph(GraphUtils.readWordsFromFile(file));
+    GraphQueryCache cache = new GraphQueryCache(g, 2);
+    assertEquals(g.calcAllShortestPaths("to", "life"), cache.calcAllShortestPaths("To", "life"));
+    assertEquals(g.calcAllShortestPaths("to", "and"), cache.calcAllShortestPaths("to", "AND"));
+    assertEquals(g.queryBridgeWords("new", "and"), cache.queryBridgeWords("new", "and"));
+    assertEquals(g.queryBridgeWords("new", "and"), cache.queryBridgeWords("NEW", "and"));
+    assertEquals(2, cache.hits());
+    assertEquals(2, cache.misses());
+    assertEquals(2, cache.size());
+
+    g.addEdge("to", "life");
+    assertEquals(0, cache.size());
+    assertEquals(g.calcAllShortestPaths("to", "life"), cache.calcAllShortestPaths("to", "life"));
+    assertEquals(3, cache.misses());
+  }
+
+  @Test
+  void testConcurrentGraphReadsDuringAppends() throws Exception {
+    File file = new File("src/data/test.txt");
+    List<String> words = GraphUtils.readWordsFromFile(file);
+    ConcurrentGraph shared = new ConcurrentGraph();
+    shared.update(g -> {
+      g.createGraph(words);
+      g.setWords(words);
+    });
+    List<Thread> readers = new ArrayList<>();
+    List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+    for (int t = 0; t < 4; t++) {
+      Thread reader = new Thread(() -> {
+        try {
+          WalkSession session = shared.newWalkSession();
+          for (int i = 0; i < 200; i++) {
+            List<String> seen = shared.getWords();
+            Assert.assertTrue(seen.size() >= words.size());
+            Assert.assertEquals(words, seen.subList(0, words.size()));
+            shared.queryBridgeWords("new", "and");
+            shared.calcAllShortestPaths("to", "life");
+            session.step();
+          }
+        } catch (Throwable e) {
+          failures.add(e);
+        }
+      });
+      readers.add(reader);
+      reader.start();
+    }
+    for (int i = 0; i < 100; i++) {
+      shared.appendText("to explore strange new worlds");
+    }
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertEquals(List.of(), failures);
+
+    Graph expected = new Graph();
+    expected.createGraph(shared.getWords());
+    for (String node : expected.getAllNodes()) {
+      assertEquals(expected.getNeighbors(node), shared.snapshot().neighbors(node));
+    }
+    assertEquals(expected.queryBridgeWords("new", "worlds"),
+            shared.queryBridgeWords("new", "worlds"));
+    assertEquals(expected.calcAllShortestPaths("to", "worlds"),
+            shared.calcAllShortestPaths("to", "worlds"));
+    assertEquals(words.size() + 500, shared.getWords().size());
+  }
+
+  @Test
+  void testForEachWordReportsProgress() throws Exception {
+    File file = new File("src/data/test.txt");
+    List<String> words = new ArrayList<>();
+    List<Long> progress = new ArrayList<>();
+    GraphUtils.forEachWord(file, words::add, progress::add);
+    assertEquals(GraphUtils.readWordsFromFile(file), words);
+    assertEquals(file.length(), progress.get(progress.size() - 1).longValue());
+  }
+
+  @Test
+  void testLazyRowsMaterializeOnDemand() {
+    List<Integer> built = new ArrayList<>();
+    LazyRows rows = new LazyRows(1_000_000, row -> {
+      built.add(row);
+      return "row " + row;
+    });
+    assertEquals(1_000_000, rows.size());
+    assertEquals("row 123456", rows.get(123456));
+    assertEquals(List.of(123456), built);
+  }
+
+  @Test
+  void testExportAndInProcessRendering() throws Exception {
+    Graph g = new Graph();
+    File file = new File("src/data/test.txt");
+    g.createGraph(GraphUtils.readWordsFromFile(file));
+    g.addEdge("new", "life");
+    GraphSnapshot snapshot = g.freeze();
+    GraphView all = GraphView.of(snapshot);
+
+    StringWriter dot = new StringWriter();
+    GraphExporter.writeDot(all, dot);
+    String[] lines = dot.toString().split("\n");
+    assertEquals(snapshot.edgeCount() + 2, lines.length);
+    Assert.assertTrue(dot.toString().contains("    \"new\" -> \"life\" [label=\"2\"];"));
+
+    StringWriter edges = new StringWriter();
+    GraphExporter.writeEdgeList(all.minWeight(2), edges);
+    assertEquals("new\tlife\t2\n", edges.toString());
+    for (int u = 0; u < snapshot.nodeCount(); u++) {
+      Assert.assertTrue(countEdgesFrom(all.topK(1), u) <= 1);
+    }
+    GraphView around = all.neighborhood("new", 1);
+    Assert.assertTrue(around.containsNode(snapshot.id("life")));
+    Assert.assertTrue(around.containsNode(snapshot.id("strange")));
+    Assert.assertFalse(around.containsNode(snapshot.id("to")));
+    assertEquals(3, all.heaviest(3).edgeCount());
+    assertEquals(0, all.heaviest(0).edgeCount());
+    assertEquals(0, all.heaviest(-1).edgeCount());
+
+    StringWriter graphMl = new StringWriter();
+    GraphExporter.writeGraphMl(around, graphMl);
+    Assert.assertTrue(graphMl.toString().contains("<node id=\"new\"/>"));
+
+    Path svg = Files.createTempFile("graph", ".svg");
+    svg.toFile().deleteOnExit();
+    GraphRenderer.render(all, svg);
+    String content = Files.readString(svg);
+    assertEquals(snapshot.edgeCount(), content.split("<line ", -1).length - 1);
+    Path png = Files.createTempFile("graph", ".png");
+    png.toFile().deleteOnExit();
+    GraphRenderer.render(around, png);
+    Assert.assertTrue(Files.size(png) > 0);
+  }
+
+  @Test
+  void testOperationMetrics() throws Exception {
+    File file = new File("src/data/test.txt");
+    List<String> words = GraphUtils.readWordsFromFile(file);
+    GraphMetrics.setEnabled(false);
+    GraphMetrics.reset();
+    Graph g = new Graph();
+    g.createGraph(words);
+    assertEquals(0, GraphMetrics.stats(GraphMetrics.Operation.EDGE_INSERT).count());
+
+    GraphMetrics.setEnabled(true);
+    try {
+      g = new Graph();
+      g.createGraph(words);
+      g.queryBridgeWords("to", "out");
+      g.calcAllShortestPaths("new", "life");
+      Path dot = Files.createTempFile("graph", ".dot");
+      dot.toFile().deleteOnExit();
+      GraphExporter.writeDot(GraphView.of(g.freeze()), dot);
+
+      GraphMetrics.OperationStats inserts =
+              GraphMetrics.stats(GraphMetrics.Operation.EDGE_INSERT);
+      assertEquals(1, inserts.count());
+      assertEquals(words.size() - 1, inserts.items());
+      Assert.assertTrue(inserts.percentileNanos(0.99) > 0);
+      assertEquals(1, GraphMetrics.stats(GraphMetrics.Operation.BRIDGE_QUERY).count());
+      Assert.assertTrue(GraphMetrics.stats(GraphMetrics.Operation.SHORTEST_PATH).items() > 0);
+      assertEquals(1, GraphMetrics.stats(GraphMetrics.Operation.PATH_ENUMERATION).items());
+      assertEquals(Files.size(dot), GraphMetrics.stats(GraphMetrics.Operation.EXPORT).items());
+
+      GraphMetrics.registerMBean();
+      Object counts = ManagementFactory.getPlatformMBeanServer()
+              .getAttribute(new ObjectName(GraphMetrics.MBEAN_NAME), "Counts");
+      Assert.assertNotNull(counts);
+    } finally {
+      GraphMetrics.setEnabled(false);
+      GraphMetrics.reset();
+    }
+  }
+
+  @Test
+  void testQueryServerBatch() throws Exception {
+    Graph g = new Graph();
+    File file = new File("src/data/test.txt");
+    g.createGraph(GraphUtils.readWordsFromFile(file));
+    String bridge = g.queryBridgeWords("new", "and");
+    try (GraphServer server = GraphServer.start(new ConcurrentGraph(g),
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      URL url = URI.create("http://127.0.0.1:" + server.address().getPort() + "/query").toURL();
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      connection.setRequestMethod("POST");
+      connection.setDoOutput(true);
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write("bridge new and\n\npath new life\nwalk 3\nfly away\n"
+                .getBytes(StandardCharsets.UTF_8));
+      }
+      assertEquals(200, connection.getResponseCode());
+      List<String> lines;
+      try (InputStream in = connection.getInputStream()) {
+        lines = Arrays.asList(new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n"));
+      }
+      assertEquals(4, lines.size());
+      assertEquals("\"" + bridge + "\"", lines.get(0));
+      assertEquals("[[\"new\",\"life\",\"路径长度为：1\"]]", lines.get(1));
+      Assert.assertTrue(lines.get(2).startsWith("[\""));
+      Assert.assertTrue(lines.get(3).startsWith("{\"error\":"));
+
+      HttpURLConnection get = (HttpURLConnection) url.openConnection();
+      assertEquals(405, get.getResponseCode());
+    }
+
+    // 12个菱形串联，n0到n12有4096条最短路径，path只返回前1000条
+    Graph diamonds = new Graph();
+    for (int i = 0; i < 12; i++) {
+      diamonds.addEdge("n" + i, "a" + i);
+      diamonds.addEdge("n" + i, "b" + i);
+      diamonds.addEdge("a" + i, "n" + (i + 1));
+      diamonds.addEdge("b" + i, "n" + (i + 1));
+    }
+    try (GraphServer server = GraphServer.start(new ConcurrentGraph(diamonds),
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      URL url = URI.create("http://127.0.0.1:" + server.address().getPort() + "/query").toURL();
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      connection.setRequestMethod("POST");
+      connection.setDoOutput(true);
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write("path n0 n12\npath n0 n12 5000\npath n0 n12 3\ncount n0 n12\n"
+                .getBytes(StandardCharsets.UTF_8));
+      }
+      List<String> lines;
+      try (InputStream in = connection.getInputStream()) {
+        lines = Arrays.asList(new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n"));
+      }
+      assertEquals(1000, lines.get(0).split("\\],\\[").length);
+      assertEquals(1000, lines.get(1).split("\\],\\[").length);
+      assertEquals(3, lines.get(2).split("\\],\\[").length);
+      assertEquals("4096", lines.get(3));
+    }
+  }
+
+  @Test
+  void testAllPairsDistances() throws Exception {
+    Graph g = new Graph();
+    File file = new File("src/data/test.txt");
+    g.createGraph(GraphUtils.readWordsFromFile(file));
+    g.addEdge("new", "life");
+    GraphSnapshot snapshot = g.freeze();
+    AllPairsDistances dense = AllPairsDistances.compute(snapshot, 4);
+    AllPairsDistances near = AllPairsDistances.compute(snapshot, 2, 4);
+    for (String source : snapshot.nodes()) {
+      ShortestPathTree tree = g.calcShortestPathTree(source);
+      for (String target : snapshot.nodes()) {
+        int expected = tree.distanceTo(target);
+        assertEquals(expected, dense.distance(source, target));
+        assertEquals(expected <= 2 ? expected : AllPairsDistances.UNREACHABLE,
+                near.distance(source, target));
+      }
+    }
+
+    Path saved = Files.createTempFile("distances", ".bin");
+    saved.toFile().deleteOnExit();
+    near.save(saved);
+    AllPairsDistances loaded = AllPairsDistances.load(saved, snapshot);
+    Assert.assertFalse(loaded.isDense());
+    assertEquals(near.distance("new", "life"), loaded.distance("new", "life"));
+    assertEquals(near.distance("to", "worlds"), loaded.distance("to", "worlds"));
+    dense.save(saved);
+    assertEquals(dense.distance("to", "worlds"),
+            AllPairsDistances.load(saved, snapshot).distance("to", "worlds"));
+    byte[] bytes = Files.readAllBytes(saved);
+    Files.write(saved, Arrays.copyOf(bytes, bytes.length - 4));
+    Assert.assertThrows(IOException.class, () -> AllPairsDistances.load(saved, snapshot));
+    Files.write(saved, Arrays.copyOf(bytes, 16));
+    Assert.assertThrows(IOException.class, () -> AllPairsDistances.load(saved, snapshot));
+    Files.write(saved, bytes);
+    g.addEdge("life", "new");
+    Assert.assertThrows(IOException.class, () -> AllPairsDistances.load(saved, g.freeze()));
+  }
+
+  @Test
+  void testLazyPathsAndCounting() {
+    // 40个菱形串联，共2^40条等长的最短路径
+    Graph g = new Graph();
+    for (int k = 0; k < 40; k++) {
+      g.addEdge("n" + k, "up" + k);
+      g.addEdge("n" + k, "down" + k);
+      g.addEdge("up" + k, "n" + (k + 1));
+      g.addEdge("down" + k, "n" + (k + 1));
+    }
+    ShortestPaths paths = g.findShortestPaths("n0", "n40");
+    assertEquals(80, paths.distance());
+    assertEquals(BigInteger.ONE.shiftLeft(40), paths.count());
+    List<List<String>> first = paths.paths(5);
+    assertEquals(5, first.size());
+    assertEquals(81, first.get(0).size());
+    assertEquals(first.get(1), paths.stream().skip(1).findFirst().orElseThrow());
+    assertEquals(5, new HashSet<>(first).size());
+    Assert.assertNull(g.findShortestPaths("n0", "missing"));
+    assertEquals(BigInteger.ZERO, g.findShortestPaths("n40", "n0").count());
+    Assert.assertFalse(g.findShortestPaths("n40", "n0").iterator().hasNext());
+
+    Graph text = new Graph();
+    text.createGraph(GraphUtils.readWordsFromFile(new File("src/data/test.txt")));
+    ShortestPathTree tree = text.calcShortestPathTree("to");
+    for (String target : tree.nodes()) {
+      assertEquals(tree.pathsTo(target).size(), tree.shortestPaths(target).count().intValue());
+    }
+  }
+
+  @Test
+  void testPointToPointSearch() {
+    Graph g = new Graph();
+    g.createGraph(GraphUtils.readWordsFromFile(new File("src/data/test.txt")));
+    g.addEdge("new", "life");
+    GraphSnapshot snapshot = g.freeze();
+    PointToPointSearch search = snapshot.pointToPoint();
+    Assert.assertTrue(search.landmarkCount() > 0);
+    for (String source : snapshot.nodes()) {
+      ShortestPathTree tree = g.calcShortestPathTree(source);
+      for (String target : snapshot.nodes()) {
+        List<List<String>> expected = tree.pathsTo(target);
+        for (ShortestPaths paths : List.of(search.bidirectional(source, target),
+                search.alt(source, target))) {
+          assertEquals(tree.distanceTo(target), paths.distance());
+          assertEquals(expected, paths.stream().toList());
+          assertEquals(expected.size(), paths.count().intValue());
+        }
+      }
+    }
+
+    // 长链上相邻单词的查询只访问很少的节点，菱形中的等长路径全部找到
+    Graph chain = new Graph();
+    for (int k = 0; k < 5000; k++) {
+      chain.addEdge("c" + k, "c" + (k + 1));
+    }
+    chain.addEdge("c10", "x");
+    chain.addEdge("x", "c12");
+    GraphMetrics.setEnabled(true);
+    try {
+      GraphMetrics.reset();
+      ShortestPaths near = chain.findShortestPaths("c10", "c12");
+      assertEquals(2, near.count().intValue());
+      assertEquals(2, near.distance());
+      Assert.assertTrue(GraphMetrics.stats(GraphMetrics.Operation.SHORTEST_PATH).items() < 10);
+      ShortestPaths far = chain.freeze().pointToPoint().alt("c12", "c4000");
+      assertEquals(3988, far.distance());
+      Assert.assertFalse(chain.freeze().pointToPoint().alt("c4000", "c12").isReachable());
+    } finally {
+      GraphMetrics.setEnabled(false);
+      GraphMetrics.reset();
+    }
+  }
+
+  @Test
+  void testReachabilityIndex() {
+    Graph g = new Graph();
+    g.createGraph(GraphUtils.readWordsFromFile(new File("src/data/test.txt")));
+    GraphSnapshot snapshot = g.freeze();
+    ReachabilityIndex index = snapshot.reachability();
+    for (String source : snapshot.nodes()) {
+      ShortestPathTree tree = g.calcShortestPathTree(source);
+      for (String target : snapshot.nodes()) {
+        boolean expected = tree.distanceTo(target) != ShortestPathTree.UNREACHABLE;
+        int u = snapshot.id(source);
+        int v = snapshot.id(target);
+        assertEquals(expected, index.reachable(u, v));
+        if (expected) {
+          Assert.assertTrue(index.mayReach(u, v));
+        }
+      }
+    }
+    Assert.assertFalse(g.isReachable("civilizations", "new"));
+    Assert.assertFalse(g.isReachable("civilizations", "missing"));
+
+    // 环a -> b -> c -> a缩成一个分量
+    Graph cycle = new Graph();
+    cycle.addEdge("a", "b");
+    cycle.addEdge("b", "c");
+    cycle.addEdge("c", "a");
+    cycle.addEdge("c", "d");
+    cycle.addEdge("e", "d");
+    ReachabilityIndex cycleIndex = cycle.freeze().reachability();
+    assertEquals(3, cycleIndex.componentCount());
+    Assert.assertTrue(cycle.isReachable("b", "a"));
+    Assert.assertTrue(cycle.isReachable("a", "d"));
+    Assert.assertFalse(cycle.isReachable("d", "a"));
+    Assert.assertFalse(cycle.isReachable("e", "a"));
+    assertEquals(List.of(List.of("没有找到路径")), cycle.calcAllShortestPaths("e", "a"));
+  }
+
+  @Test
+  void testGraphBuilder() {
+    // 与逐个HashMap计数的结果比较，边数足以触发多次扩容
+    Random random = new Random(7);
+    GraphBuilder builder = new GraphBuilder();
+    Map<String, Map<String, Integer>> expected = new HashMap<>();
+    for (int i = 0; i < 20000; i++) {
+      String source = "w" + random.nextInt(500);
+      String target = "w" + random.nextInt(500);
+      int count = 1 + random.nextInt(3);
+      int old = expected.computeIfAbsent(source, k -> new HashMap<>())
+              .getOrDefault(target, 0);
+      assertEquals(old, builder.addEdge(source, target, count));
+      expected.get(source).put(target, old + count);
+    }
+    assertEquals(expected, builder.toMap());
+    assertEquals(builder.toMap(), expected);
+    assertEquals(expected.hashCode(), builder.toMap().hashCode());
+    assertEquals(expected.get("w1").get("w2") == null ? 0 : expected.get("w1").get("w2"),
+            builder.weight("w1", "w2"));
+    assertEquals(0, builder.weight("w1", "missing"));
+
+    GraphSnapshot snapshot = builder.toSnapshot();
+    assertEquals(builder.edgeCount(), snapshot.edgeCount());
+    for (int u = 0; u < snapshot.nodeCount(); u++) {
+      for (int i = snapshot.offsets[u] + 1; i < snapshot.offsets[u + 1]; i++) {
+        Assert.assertTrue(snapshot.targets[i - 1] < snapshot.targets[i]);
+      }
+    }
+    // 快照不受之后修改的影响
+    builder.addEdge("fresh", "w1", 1);
+    assertEquals(-1, snapshot.id("fresh"));
+    Assert.assertNull(snapshot.asMap().get("fresh"));
+
+    // 从快照载入的图在修改时重建构建器，编号不变
+    Graph g = new Graph();
+    g.createGraph(GraphUtils.readWordsFromFile(new File("src/data/test.txt")));
+    Graph copy = new Graph();
+    copy.setWordsMap(g.getWordsMap());
+    assertEquals(g.getWordsMap(), copy.getWordsMap());
+    GraphBuilder rebuilt = GraphBuilder.of(g.freeze());
+    assertEquals(g.freeze().nodes(), rebuilt.toSnapshot().nodes());
+    assertEquals(g.getWordsMap(), rebuilt.toMap());
+  }
+
+  @Test
+  void testTokenSequence() {
+    List<String> words = GraphUtils.readWordsFromFile(new File("src/data/test.txt"));
+    TokenSequence tokens = TokenSequence.of(words);
+    assertEquals(words, tokens);
+    assertEquals(new HashSet<>(words).size(), tokens.distinctWords());
+
+    // 前缀视图不受之后追加的影响，包括编号从2字节换成4字节
+    List<String> prefix = tokens.prefix(tokens.size());
+    for (int i = 0; i < 70000; i++) {
+      tokens.add("w" + i);
+    }
+    assertEquals(words, prefix);
+    assertEquals(words.size() + 70000, tokens.size());
+    assertEquals("w69999", tokens.get(tokens.size() - 1));
+    assertEquals(words, tokens.subList(0, words.size()));
+
+    Graph g = new Graph();
+    g.setWords(words);
+    ConcurrentGraph shared = new ConcurrentGraph(g);
+    List<String> published = shared.getWords();
+    shared.appendText("Another new life");
+    assertEquals(words, published);
+    assertEquals(words.size() + 3, shared.getWords().size());
+    assertEquals("another", shared.getWords().get(words.size()));
+    Assert.assertThrows(UnsupportedOperationException.class, () -> g.getWords().add("x"));
+  }
+
+  private static int countEdgesFrom(GraphView view, int node) throws Exception {
+    int[] count = {0};
+    view.forEachEdge((source, target, weight) -> {
+      if (source == node) {
+        count[0]++;
+      }
+    });
+    return count[0];
+  }
 }